@@ -108,6 +108,17 @@ public class ExamplePlugin extends JavaPlugin {
                 ClaimItemsMenu claimItemsMenu = new ClaimItemsMenu(this, 45, mutableRewardsList);
                 player.openInventory(claimItemsMenu.getInventory());
                 return true;
+            case "catalog":
+                //the icons of the catalog are only built for the entries on the page that is shown
+                Material[] items = Arrays.stream(Material.values()).filter(Material::isItem).toArray(Material[]::new);
+                IconCatalog catalog = new IconCatalog(nameKey -> items[nameKey].name().toLowerCase(), loreTemplateId -> null);
+                for (int index = 0; index < items.length; index++) {
+                    catalog.add(items[index], index);
+                }
+                ListMenu<ExamplePlugin, Integer> catalogMenu = new ListMenu<>(this, 54, "Catalog", catalog.indices(),
+                        catalog.slotRenderer((event, index) -> event.getWhoClicked().sendMessage("You clicked " + catalog.getMaterial(index) + ".")));
+                player.openInventory(catalogMenu.getInventory());
+                return true;
             case "dragpage":
                 DragPage dragPage = new DragPage(this);
                 player.openInventory(dragPage.getInventory());
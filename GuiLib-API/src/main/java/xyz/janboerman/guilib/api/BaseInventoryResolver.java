@@ -0,0 +1,127 @@
+package xyz.janboerman.guilib.api;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.inventory.Inventory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Resolves the object that identifies an inventory in the gui registry of the {@link GuiListener}.
+ * <p>
+ * On CraftBukkit-based servers, {@link Inventory} instances are created on-demand, hence they cannot be used as identities of inventories.
+ * The resolver is used to obtain the object that does persist the inventory instead.
+ *
+ * @see GuiListener#setBaseInventoryResolver(BaseInventoryResolver)
+ */
+@FunctionalInterface
+public interface BaseInventoryResolver {
+
+    /**
+     * Get the object that identifies the inventory.
+     * Implementations must return the same object (by reference) for every Inventory instance that represents the same inventory.
+     *
+     * @param inventory the bukkit inventory
+     * @return the authoritative inventory
+     */
+    public Object getBaseInventory(Inventory inventory);
+
+    /**
+     * Get the resolver that uses the bukkit inventory itself as its identity.
+     * This resolver is only suitable for server implementations that do not create their Inventory instances on-demand.
+     *
+     * @return the identity resolver
+     */
+    public static BaseInventoryResolver identity() {
+        return IdentityInventoryResolver.INSTANCE;
+    }
+
+    /**
+     * Get the resolver that is most suitable for the running server implementation.
+     * On CraftBukkit-based servers this resolver obtains the NMS inventory from the CraftInventory using a {@link MethodHandle}
+     * that is bound once, otherwise the {@linkplain #identity() identity resolver} is returned.
+     *
+     * @return the resolver for the running server
+     */
+    public static BaseInventoryResolver detect() {
+        return CraftInventoryResolver.isSupported() ? CraftInventoryResolver.INSTANCE : identity();
+    }
+
+}
+
+class IdentityInventoryResolver implements BaseInventoryResolver {
+
+    static final IdentityInventoryResolver INSTANCE = new IdentityInventoryResolver();
+
+    private IdentityInventoryResolver() {}
+
+    @Override
+    public Object getBaseInventory(Inventory inventory) {
+        return inventory;
+    }
+
+    @Override
+    public String toString() {
+        return "IdentityInventoryResolver";
+    }
+}
+
+class CraftInventoryResolver implements BaseInventoryResolver {
+
+    static final CraftInventoryResolver INSTANCE = new CraftInventoryResolver();
+
+    //static final, so that the JIT compiler can treat the method handle as a constant and inline the target.
+    private static final Class<?> CRAFT_INVENTORY;
+    private static final MethodHandle GET_INVENTORY; //(Inventory)Object
+    static {
+        Class<?> craftInventoryClass = null;
+        MethodHandle getInventoryHandle = null;
+        Server server = Bukkit.getServer();
+        Class<?> serverClass = server == null ? null : server.getClass();
+        if (serverClass != null && "CraftServer".equals(serverClass.getSimpleName())) {
+            String serverPackage = serverClass.getPackageName();
+            String className = serverPackage + ".inventory.CraftInventory";
+            try {
+                craftInventoryClass = Class.forName(className);
+                Method getInventoryMethod = craftInventoryClass.getMethod("getInventory");
+                getInventoryHandle = MethodHandles.publicLookup().unreflect(getInventoryMethod)
+                        .asType(MethodType.methodType(Object.class, Inventory.class));
+            } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException ignored) {
+                craftInventoryClass = null;
+                getInventoryHandle = null;
+            }
+        }
+        CRAFT_INVENTORY = craftInventoryClass;
+        GET_INVENTORY = getInventoryHandle;
+    }
+
+    private CraftInventoryResolver() {}
+
+    static boolean isSupported() {
+        return CRAFT_INVENTORY != null && GET_INVENTORY != null;
+    }
+
+    //This works around a bug in CraftBukkit where CraftInventory instances cannot be used as WeakHashMap keys because CraftInventory instances are created on-demand.
+    //They are not stored in the nms inventory, hence to obtain an object that persists the inventory, we need the NMS inventory: IInventory(mc-dev) Container(moj-map).
+    @Override
+    public Object getBaseInventory(Inventory inventory) {
+        if (CRAFT_INVENTORY != null && CRAFT_INVENTORY.isInstance(inventory)) {
+            try {
+                return (Object) GET_INVENTORY.invokeExact(inventory);
+            } catch (Error error) {
+                throw error;
+            } catch (Throwable neverThrown) {
+                //CraftInventory#getInventory() does not throw.
+            }
+        }
+        return inventory;
+    }
+
+    @Override
+    public String toString() {
+        return "CraftInventoryResolver";
+    }
+}
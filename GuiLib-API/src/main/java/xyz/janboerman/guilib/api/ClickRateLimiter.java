@@ -0,0 +1,240 @@
+package xyz.janboerman.guilib.api;
+
+import org.bukkit.entity.HumanEntity;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the rate at which players can click in guis, using a token bucket per player.
+ * Every player can click {@code burst} times in quick succession, after which clicks are accepted at a rate of {@code clicksPerSecond}.
+ * Optionally, repeated clicks on the same slot within a debounce interval are dropped as well.
+ * <p>
+ * The state of the buckets is kept in primitive arrays keyed by entity id. Players that have not clicked in a while take up no state,
+ * because their buckets are indistinguishable from new buckets; such entries are dropped when the arrays are resized.
+ * The limiter is thread-safe, players are spread over independently locked stripes.
+ *
+ * @see GuiListener#setClickRateLimiter(ClickRateLimiter)
+ */
+public class ClickRateLimiter {
+
+    private static final int STRIPE_COUNT = 16;         //must be a power of two
+    private static final int INITIAL_CAPACITY = 16;     //must be a power of two
+    private static final int EMPTY = Integer.MIN_VALUE; //entity ids are never negative
+    private static final int NO_SLOT = Integer.MIN_VALUE;
+
+    private static final int ACCEPTED = 0, RATE_LIMITED = 1, DEBOUNCED = 2;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final long debounceNanos;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    private final LongAdder acceptedClicks = new LongAdder();
+    private final LongAdder rateLimitedClicks = new LongAdder();
+    private final LongAdder debouncedClicks = new LongAdder();
+
+    /**
+     * Creates a rate limiter without debouncing.
+     *
+     * @param clicksPerSecond the sustained number of clicks per second that is accepted per player
+     * @param burst the number of clicks that a player can make in quick succession
+     * @throws IllegalArgumentException if clicksPerSecond is not positive or burst is less than one
+     */
+    public ClickRateLimiter(double clicksPerSecond, int burst) {
+        this(clicksPerSecond, burst, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param clicksPerSecond the sustained number of clicks per second that is accepted per player
+     * @param burst the number of clicks that a player can make in quick succession
+     * @param debounce the interval within which repeated clicks on the same slot are dropped, or 0 to disable debouncing
+     * @param unit the unit of the debounce interval
+     * @throws IllegalArgumentException if clicksPerSecond is not positive, burst is less than one or debounce is negative
+     */
+    public ClickRateLimiter(double clicksPerSecond, int burst, long debounce, TimeUnit unit) {
+        if (!(clicksPerSecond > 0D)) throw new IllegalArgumentException("Clicks per second must be positive, got: " + clicksPerSecond);
+        if (burst < 1) throw new IllegalArgumentException("Burst must be at least one, got: " + burst);
+        if (debounce < 0L) throw new IllegalArgumentException("Debounce cannot be negative, got: " + debounce);
+        Objects.requireNonNull(unit, "Unit cannot be null");
+
+        this.emissionIntervalNanos = Math.max(1L, (long) Math.ceil(TimeUnit.SECONDS.toNanos(1L) / clicksPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.debounceNanos = unit.toNanos(debounce);
+
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Tests whether a click is allowed, and if so, takes a token from the player's bucket.
+     *
+     * @param clicker the player who clicked
+     * @param slot the raw slot that was clicked, used for debouncing
+     * @return true if the click is allowed, false if it should be dropped
+     */
+    public boolean tryAcquire(HumanEntity clicker, int slot) {
+        int entityId = clicker.getEntityId();
+        int hash = mix(entityId);
+        Stripe stripe = stripes[hash & (STRIPE_COUNT - 1)];
+
+        int result;
+        synchronized (stripe) {
+            result = stripe.tryAcquire(entityId, hash >>> 4, slot, System.nanoTime());
+        }
+
+        switch (result) {
+            case ACCEPTED:
+                acceptedClicks.increment();
+                return true;
+            case RATE_LIMITED:
+                rateLimitedClicks.increment();
+                return false;
+            default:
+                debouncedClicks.increment();
+                return false;
+        }
+    }
+
+    /**
+     * Get the number of clicks that were accepted.
+     * @return the number of accepted clicks
+     */
+    public long getAcceptedClicks() {
+        return acceptedClicks.sum();
+    }
+
+    /**
+     * Get the number of clicks that were dropped because the player clicked too fast.
+     * @return the number of rate-limited clicks
+     */
+    public long getRateLimitedClicks() {
+        return rateLimitedClicks.sum();
+    }
+
+    /**
+     * Get the number of clicks that were dropped because they repeated a click on the same slot within the debounce interval.
+     * @return the number of debounced clicks
+     */
+    public long getDebouncedClicks() {
+        return debouncedClicks.sum();
+    }
+
+    /**
+     * Get the total number of clicks that were dropped.
+     * @return the number of rate-limited and debounced clicks
+     */
+    public long getDroppedClicks() {
+        return getRateLimitedClicks() + getDebouncedClicks();
+    }
+
+    @Override
+    public String toString() {
+        return "ClickRateLimiter(accepted=" + getAcceptedClicks() + ",rateLimited=" + getRateLimitedClicks() + ",debounced=" + getDebouncedClicks() + ")";
+    }
+
+    private static int mix(int entityId) {
+        int h = entityId * 0x9E3779B9; //entity ids are sequential, spread them out.
+        return h ^ (h >>> 16);
+    }
+
+    //Open addressing hash table with linear probing. The bucket of a player is stored as its theoretical arrival time (GCRA),
+    //which is equivalent to a token bucket but needs only one long.
+    private final class Stripe {
+        private int[] entityIds = newKeys(INITIAL_CAPACITY);
+        private long[] arrivalTimes = new long[INITIAL_CAPACITY];
+        private long[] lastClickTimes = new long[INITIAL_CAPACITY];
+        private int[] lastClickSlots = new int[INITIAL_CAPACITY];
+        private int size;
+
+        //must hold the lock of this stripe
+        int tryAcquire(int entityId, int hash, int slot, long now) {
+            int mask = entityIds.length - 1;
+            int index = hash & mask;
+            while (entityIds[index] != EMPTY && entityIds[index] != entityId) {
+                index = (index + 1) & mask;
+            }
+
+            if (entityIds[index] == EMPTY) {
+                if (size + 1 > entityIds.length - (entityIds.length >>> 2)) { //load factor 0.75
+                    rehash(now);
+                    return tryAcquire(entityId, hash, slot, now);
+                }
+                entityIds[index] = entityId;
+                arrivalTimes[index] = now;
+                lastClickTimes[index] = now;
+                lastClickSlots[index] = NO_SLOT;
+                size += 1;
+            }
+
+            if (debounceNanos > 0L && lastClickSlots[index] == slot && now - lastClickTimes[index] < debounceNanos) {
+                return DEBOUNCED;
+            }
+
+            long arrivalTime = Math.max(arrivalTimes[index], now);
+            if (arrivalTime - now > burstToleranceNanos) {
+                return RATE_LIMITED;
+            }
+
+            arrivalTimes[index] = arrivalTime + emissionIntervalNanos;
+            lastClickTimes[index] = now;
+            lastClickSlots[index] = slot;
+            return ACCEPTED;
+        }
+
+        //must hold the lock of this stripe. drops the entries of players whose buckets are full again.
+        private void rehash(long now) {
+            int liveCount = 0;
+            for (int i = 0; i < entityIds.length; i++) {
+                if (entityIds[i] != EMPTY && !isIdle(arrivalTimes[i], lastClickTimes[i], now)) liveCount += 1;
+            }
+
+            int capacity = INITIAL_CAPACITY;
+            while (liveCount + 1 > capacity - (capacity >>> 2)) capacity <<= 1;
+
+            int[] oldEntityIds = entityIds;
+            long[] oldArrivalTimes = arrivalTimes;
+            long[] oldLastClickTimes = lastClickTimes;
+            int[] oldLastClickSlots = lastClickSlots;
+
+            entityIds = newKeys(capacity);
+            arrivalTimes = new long[capacity];
+            lastClickTimes = new long[capacity];
+            lastClickSlots = new int[capacity];
+            size = 0;
+
+            int mask = capacity - 1;
+            for (int i = 0; i < oldEntityIds.length; i++) {
+                int entityId = oldEntityIds[i];
+                if (entityId == EMPTY) continue;
+                if (isIdle(oldArrivalTimes[i], oldLastClickTimes[i], now)) continue;
+
+                int index = (mix(entityId) >>> 4) & mask;
+                while (entityIds[index] != EMPTY) index = (index + 1) & mask;
+                entityIds[index] = entityId;
+                arrivalTimes[index] = oldArrivalTimes[i];
+                lastClickTimes[index] = oldLastClickTimes[i];
+                lastClickSlots[index] = oldLastClickSlots[i];
+                size += 1;
+            }
+        }
+
+        //an idle bucket is full, and its last click can no longer debounce anything.
+        private boolean isIdle(long arrivalTime, long lastClickTime, long now) {
+            return arrivalTime <= now && now - lastClickTime >= debounceNanos;
+        }
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+}
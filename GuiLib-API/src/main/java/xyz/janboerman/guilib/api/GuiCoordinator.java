@@ -0,0 +1,324 @@
+package xyz.janboerman.guilib.api;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredServiceProvider;
+import org.bukkit.plugin.ServicesManager;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Coordinates the {@link GuiListener}s of multiple shaded (and relocated) copies of GuiLib, such that inventory events are handled
+ * by one set of event handlers which look up gui inventories in one registry.
+ * <p>
+ * The coordinator is registered in Bukkit's {@link ServicesManager} by the first copy of GuiLib of which the listener is
+ * {@linkplain GuiListener#register(Plugin) registered}. The other copies find the coordinator by its simple class name, because their
+ * relocated copy of this class is a different class. For the same reason, the public methods of this class only use types from Bukkit and the JDK.
+ * <p>
+ * Plugins should not need to use this class directly.
+ *
+ * @see GuiListener#register(Plugin)
+ */
+public final class GuiCoordinator implements Listener {
+
+    /**
+     * The version of the protocol between copies of GuiLib. Coordinators of which the version differs are not joined.
+     */
+    public static final int PROTOCOL_VERSION = 1;
+
+    private static final Follower NO_FOLLOWER = new Follower(null, null, null);
+
+    private final GuiListener guiListener;
+    private final CopyOnWriteArrayList<Follower> followers = new CopyOnWriteArrayList<>();
+    //Caches which follower owns the holders of a class. Replaced when followers join or leave, so that stale results are dropped
+    //and the classes of disabled plugins are not retained.
+    private volatile ConcurrentHashMap<Class<?>, Follower> followerCache = new ConcurrentHashMap<>();
+
+    GuiCoordinator(GuiListener guiListener) {
+        this.guiListener = guiListener;
+    }
+
+    /**
+     * Get the version of the protocol that this coordinator speaks.
+     * @return the protocol version
+     */
+    public int getProtocolVersion() {
+        return PROTOCOL_VERSION;
+    }
+
+    /**
+     * Joins a copy of GuiLib. From now on, inventory events of which the inventory is held by an instance of the holder class are
+     * passed to the dispatcher. The dispatcher is responsible for calling the right method of the holder.
+     * Click and drag events are cancelled before they are passed to the dispatcher.
+     *
+     * @param plugin the plugin that shades the joining copy of GuiLib
+     * @param holderClass the GuiInventoryHolder class of the joining copy of GuiLib
+     * @param dispatcher the dispatcher of the joining copy of GuiLib
+     * @return true if the copy joined this coordinator, otherwise false
+     */
+    public boolean join(Plugin plugin, Class<?> holderClass, BiConsumer<InventoryHolder, InventoryEvent> dispatcher) {
+        Objects.requireNonNull(plugin, "Plugin cannot be null");
+        Objects.requireNonNull(holderClass, "Holder class cannot be null");
+        Objects.requireNonNull(dispatcher, "Dispatcher cannot be null");
+        if (holderClass == GuiInventoryHolder.class) return false; //that's us.
+
+        followers.add(new Follower(plugin, holderClass, dispatcher));
+        followerCache = new ConcurrentHashMap<>();
+        return true;
+    }
+
+    /**
+     * Leaves the copies of GuiLib that were shaded by the plugin.
+     * @param plugin the plugin
+     */
+    public void leave(Plugin plugin) {
+        if (followers.removeIf(follower -> follower.plugin == plugin)) {
+            followerCache = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Registers a gui of a joined copy of GuiLib, of which the holder of the inventory is not the gui itself.
+     *
+     * @param holder the holder of the gui
+     * @param baseInventory the identity of the inventory, as obtained by the {@link BaseInventoryResolver} of the joined copy
+     * @param inventoryTypes the bitmask of the {@link org.bukkit.event.inventory.InventoryType}s (by ordinal) of the registered inventories
+     * @return true if the gui was registered successfully, otherwise false
+     */
+    public boolean registerGui(InventoryHolder holder, Object baseInventory, long inventoryTypes) {
+        Objects.requireNonNull(holder, "Holder cannot be null");
+        Objects.requireNonNull(baseInventory, "Base inventory cannot be null");
+        return guiListener.registerForeignGui(holder, baseInventory, inventoryTypes);
+    }
+
+    /**
+     * Lets the coordinator look up the guis of a joined copy of GuiLib in inventories of the given types.
+     * Inventory events of other types are not passed on, so a joined copy must register the type of every gui it creates,
+     * including the guis of which the holder of the inventory is the gui itself.
+     *
+     * @param inventoryTypes the bitmask of the {@link org.bukkit.event.inventory.InventoryType}s (by ordinal) of the inventories of the guis
+     */
+    public void registerInventoryTypes(long inventoryTypes) {
+        guiListener.registerInventoryTypes(inventoryTypes);
+    }
+
+    /**
+     * Lets the coordinator listen to the event types of which the guis of a joined copy of GuiLib override the handlers.
+     * The coordinator does not listen to open and close events until some gui needs them.
+     *
+     * @param handlers bitmask of the overridden event handlers: 1 for onOpen, 2 for onClick, 4 for onDrag and 8 for onClose
+     */
+    public void requireHandlers(int handlers) {
+        guiListener.requireHandlers(handlers);
+    }
+
+    /**
+     * Followers leave the coordinator when their plugin is disabled.
+     * @param event the PluginDisableEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        leave(event.getPlugin());
+    }
+
+    /**
+     * Tests whether the holder is the holder of a gui of a joined copy of GuiLib.
+     * @param holder the inventory holder
+     * @return true if a follower owns the holder
+     */
+    boolean isFollowerHolder(InventoryHolder holder) {
+        return getFollower(holder) != NO_FOLLOWER;
+    }
+
+    /**
+     * Passes the event to the copy of GuiLib which owns the holder, if any.
+     * @param holder the holder of the gui
+     * @param event the inventory event
+     */
+    void dispatch(InventoryHolder holder, InventoryEvent event) {
+        Follower follower = getFollower(holder);
+        if (follower != NO_FOLLOWER) follower.dispatcher.accept(holder, event);
+    }
+
+    private Follower getFollower(InventoryHolder holder) {
+        if (followers.isEmpty()) return NO_FOLLOWER;
+
+        ConcurrentHashMap<Class<?>, Follower> cache = followerCache;
+        Class<?> holderClass = holder.getClass();
+        Follower follower = cache.get(holderClass);
+        if (follower == null) {
+            follower = NO_FOLLOWER;
+            for (Follower candidate : followers) {
+                if (candidate.holderClass.isAssignableFrom(holderClass)) {
+                    follower = candidate;
+                    break;
+                }
+            }
+            cache.put(holderClass, follower);
+        }
+        return follower;
+    }
+
+    private static final class Follower {
+        private final Plugin plugin;
+        private final Class<?> holderClass;
+        private final BiConsumer<InventoryHolder, InventoryEvent> dispatcher;
+
+        private Follower(Plugin plugin, Class<?> holderClass, BiConsumer<InventoryHolder, InventoryEvent> dispatcher) {
+            this.plugin = plugin;
+            this.holderClass = holderClass;
+            this.dispatcher = dispatcher;
+        }
+    }
+}
+
+/**
+ * A coordinator of another copy of GuiLib. Its methods are bound once using {@link MethodHandles#publicLookup()}.
+ */
+class RemoteCoordinator {
+
+    private final Object provider;
+    private final MethodHandle join;            //(Plugin, Class, BiConsumer)boolean
+    private final MethodHandle leave;           //(Plugin)void
+    private final MethodHandle registerGui;     //(InventoryHolder, Object, long)boolean
+    private final MethodHandle registerInventoryTypes; //(long)void
+    private final MethodHandle requireHandlers; //(int)void
+
+    private RemoteCoordinator(Object provider, MethodHandle join, MethodHandle leave, MethodHandle registerGui, MethodHandle registerInventoryTypes,
+                              MethodHandle requireHandlers) {
+        this.provider = provider;
+        this.join = join;
+        this.leave = leave;
+        this.registerGui = registerGui;
+        this.registerInventoryTypes = registerInventoryTypes;
+        this.requireHandlers = requireHandlers;
+    }
+
+    /**
+     * Finds the coordinator of another copy of GuiLib that speaks our protocol.
+     * Coordinators that speak a different version of the protocol are skipped with a warning: the guis of the joining copy
+     * are then handled by its own listener, which becomes the coordinator for the copies that do speak its version.
+     *
+     * @param servicesManager the services manager
+     * @param plugin the plugin that shades the joining copy of GuiLib
+     * @return the coordinator, or null if no such coordinator was registered
+     */
+    static RemoteCoordinator find(ServicesManager servicesManager, Plugin plugin) {
+        for (Class<?> service : servicesManager.getKnownServices()) {
+            if (service == GuiCoordinator.class || !GuiCoordinator.class.getSimpleName().equals(service.getSimpleName())) continue;
+
+            for (RegisteredServiceProvider<?> registration : servicesManager.getRegistrations(service)) {
+                Object provider = registration.getProvider();
+                int version = getProtocolVersion(provider);
+                if (version != GuiCoordinator.PROTOCOL_VERSION) {
+                    plugin.getLogger().warning("Cannot join the GuiLib coordinator of " + registration.getPlugin().getName()
+                            + ", because it speaks protocol version " + version + " instead of " + GuiCoordinator.PROTOCOL_VERSION
+                            + ". The guis of " + plugin.getName() + " are handled by its own copy of GuiLib.");
+                    continue;
+                }
+
+                RemoteCoordinator coordinator = bind(provider);
+                if (coordinator != null) return coordinator;
+            }
+        }
+        return null;
+    }
+
+    //the protocol version of a coordinator, or -1 if it cannot be determined.
+    private static int getProtocolVersion(Object provider) {
+        if (provider == null) return -1;
+        try {
+            MethodHandle getProtocolVersion = MethodHandles.publicLookup().findVirtual(provider.getClass(), "getProtocolVersion", MethodType.methodType(int.class));
+            return (int) getProtocolVersion.invoke(provider);
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable incompatible) {
+            return -1;
+        }
+    }
+
+    private static RemoteCoordinator bind(Object provider) {
+        Class<?> providerClass = provider.getClass();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+
+            MethodHandle join = lookup.findVirtual(providerClass, "join", MethodType.methodType(boolean.class, Plugin.class, Class.class, BiConsumer.class));
+            MethodHandle leave = lookup.findVirtual(providerClass, "leave", MethodType.methodType(void.class, Plugin.class));
+            MethodHandle registerGui = lookup.findVirtual(providerClass, "registerGui", MethodType.methodType(boolean.class, InventoryHolder.class, Object.class, long.class));
+            MethodHandle registerInventoryTypes = lookup.findVirtual(providerClass, "registerInventoryTypes", MethodType.methodType(void.class, long.class));
+            MethodHandle requireHandlers = lookup.findVirtual(providerClass, "requireHandlers", MethodType.methodType(void.class, int.class));
+            return new RemoteCoordinator(provider, join.bindTo(provider), leave.bindTo(provider), registerGui.bindTo(provider),
+                    registerInventoryTypes.bindTo(provider), requireHandlers.bindTo(provider));
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable incompatible) {
+            //not a coordinator that we can talk to.
+            return null;
+        }
+    }
+
+    Object getProvider() {
+        return provider;
+    }
+
+    boolean join(Plugin plugin, Class<?> holderClass, BiConsumer<InventoryHolder, InventoryEvent> dispatcher) {
+        try {
+            return (boolean) join.invokeExact(plugin, holderClass, dispatcher);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable neverThrown) {
+            throw new RuntimeException(neverThrown);
+        }
+    }
+
+    void leave(Plugin plugin) {
+        try {
+            leave.invokeExact(plugin);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable neverThrown) {
+            throw new RuntimeException(neverThrown);
+        }
+    }
+
+    boolean registerGui(InventoryHolder holder, Object baseInventory, long inventoryTypes) {
+        try {
+            return (boolean) registerGui.invokeExact(holder, baseInventory, inventoryTypes);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable neverThrown) {
+            throw new RuntimeException(neverThrown);
+        }
+    }
+
+    void registerInventoryTypes(long inventoryTypes) {
+        try {
+            registerInventoryTypes.invokeExact(inventoryTypes);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable neverThrown) {
+            throw new RuntimeException(neverThrown);
+        }
+    }
+
+    void requireHandlers(int handlers) {
+        try {
+            requireHandlers.invokeExact(handlers);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable neverThrown) {
+            throw new RuntimeException(neverThrown);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package xyz.janboerman.guilib.api;
 
+import org.bukkit.Server;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
@@ -33,6 +34,11 @@ public abstract class GuiInventoryHolder<P extends Plugin> implements InventoryH
     private final P plugin;
     protected final GuiListener guiListener;
 
+    //how the inventory was created, so that copies can create an equal inventory. all absent for custom inventories.
+    private final InventoryType type;
+    private final int size;
+    private final String title;
+
     /**
      * Constructs a new GuiInventoryHolder for your plugin with the given inventory type and title.
      * @param plugin your plugin
@@ -58,6 +64,9 @@ public abstract class GuiInventoryHolder<P extends Plugin> implements InventoryH
         this.guiListener = guiListener;
         this.plugin = plugin;
         this.inventory = plugin.getServer().createInventory(this, type, title); //implicit null check
+        this.type = type;
+        this.size = 0;
+        this.title = title;
 
         guiListener.registerGui(this, inventory); //implicit null check
     }
@@ -87,6 +96,9 @@ public abstract class GuiInventoryHolder<P extends Plugin> implements InventoryH
         this.guiListener = guiListener;
         this.plugin = plugin;
         this.inventory = plugin.getServer().createInventory(this, size, title); //implicit null check
+        this.type = null;
+        this.size = size;
+        this.title = title;
 
         guiListener.registerGui(this, inventory); //implicit null check
     }
@@ -114,6 +126,9 @@ public abstract class GuiInventoryHolder<P extends Plugin> implements InventoryH
         this.guiListener = guiListener;
         this.plugin = plugin;
         this.inventory = plugin.getServer().createInventory(this, type); //implicit null check
+        this.type = type;
+        this.size = 0;
+        this.title = null;
 
         guiListener.registerGui(this, inventory); //implicit null check
     }
@@ -141,6 +156,9 @@ public abstract class GuiInventoryHolder<P extends Plugin> implements InventoryH
         this.guiListener = guiListener;
         this.plugin = plugin;
         this.inventory = plugin.getServer().createInventory(this, size); //implicit null check
+        this.type = null;
+        this.size = size;
+        this.title = null;
 
         guiListener.registerGui(this, inventory); //implicit null check
     }
@@ -228,10 +246,43 @@ public abstract class GuiInventoryHolder<P extends Plugin> implements InventoryH
         this.guiListener = guiListener;
         this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
         this.inventory = Objects.requireNonNull(inventory, "Inventory cannot be null");
+        this.type = null;
+        this.size = 0;
+        this.title = null;
 
         guiListener.registerGui(this, inventory); //implicit null check
     }
 
+    /**
+     * Constructs a copy of a GuiInventoryHolder. The copy gets a new inventory of the same type, size and title,
+     * and the contents of the prototype's inventory are copied into it in bulk.
+     * <p>
+     * This is useful for guis that are opened by many players and are expensive to build: build the gui once, and give every player a copy.
+     *
+     * @param prototype the gui holder to copy
+     * @throws IllegalArgumentException if the prototype was constructed with a custom inventory, see {@link #GuiInventoryHolder(GuiListener, Plugin, Inventory)}
+     */
+    protected GuiInventoryHolder(GuiInventoryHolder<P> prototype) {
+        Objects.requireNonNull(prototype, "Prototype cannot be null");
+        this.guiListener = prototype.guiListener;
+        this.plugin = prototype.plugin;
+        this.type = prototype.type;
+        this.size = prototype.size;
+        this.title = prototype.title;
+
+        Server server = plugin.getServer();
+        if (type != null) {
+            this.inventory = title == null ? server.createInventory(this, type) : server.createInventory(this, type, title);
+        } else if (size > 0) {
+            this.inventory = title == null ? server.createInventory(this, size) : server.createInventory(this, size, title);
+        } else {
+            throw new IllegalArgumentException("Cannot copy a gui holder that was constructed with a custom inventory");
+        }
+        this.inventory.setContents(prototype.getInventory().getContents());
+
+        guiListener.registerGui(this, inventory);
+    }
+
     /**
      * Get the inventory associated with this gui holder.
      * Subclasses that override this method should always return
@@ -1,22 +1,36 @@
 package xyz.janboerman.guilib.api;
 
-import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.InventoryEvent;
 import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.server.ServiceUnregisterEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.ServicesManager;
 
-import java.lang.ref.WeakReference;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.WeakHashMap;
-import java.util.function.Consumer;
+import xyz.janboerman.guilib.api.util.LatencyHistogram;
+import xyz.janboerman.guilib.util.Overrides;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The listener that listens when GUIs are opened, clicked and closed. There should only ever be one instance registered.
@@ -25,20 +39,86 @@ import java.util.function.Consumer;
  *     <code>
  *     {@literal @}Override
  *     public void onEnable() {
- *         getServer().getPluginManager().registerEvents(GuiListener.getInstance(), this);
+ *         GuiListener.getInstance().register(this);
  *
  *         // more initialization stuff...
  *     }
  *     </code>
  * </pre>
+ * When multiple plugins shade GuiLib, the listeners registered using {@link #register(Plugin)} coordinate with each other,
+ * such that every inventory event is handled only once, by one of them. See {@link GuiCoordinator}.
+ * Registering the listener using {@link PluginManager#registerEvents(Listener, Plugin)} still works, but then it does not coordinate.
+ * <p>
  * If instead you decide to use GuiLib as a runtime dependency and put the jar in your plugins folder, GuiLib registers this listener itself.
  */
 public class GuiListener implements Listener {
 
     private static final GuiListener INSTANCE = new GuiListener();
 
+    //Bits of the event handlers of GuiInventoryHolder. These values are part of the protocol between copies of GuiLib, see GuiCoordinator#requireHandlers(int).
+    static final int OPEN_HANDLER = 1, CLICK_HANDLER = 2, DRAG_HANDLER = 4, CLOSE_HANDLER = 8;
+    //Click and drag events are always listened to, because they are cancelled for all guis, also for guis that do not override onClick or onDrag.
+    private static final int ALWAYS_REQUIRED_HANDLERS = CLICK_HANDLER | DRAG_HANDLER;
+
+    //Hand-written executors, so that Bukkit does not have to discover our handlers reflectively and invoke them through generated executors.
+    //They do not capture anything, so every executor is a single monomorphic instance.
+    private static final EventExecutor OPEN_EXECUTOR = (listener, event) -> {
+        if (event instanceof InventoryOpenEvent) ((GuiListener) listener).onInventoryOpen((InventoryOpenEvent) event);
+    };
+    private static final EventExecutor CLICK_EXECUTOR = (listener, event) -> {
+        if (event instanceof InventoryClickEvent) ((GuiListener) listener).onInventoryClick((InventoryClickEvent) event);
+    };
+    private static final EventExecutor DRAG_EXECUTOR = (listener, event) -> {
+        if (event instanceof InventoryDragEvent) ((GuiListener) listener).onInventoryDrag((InventoryDragEvent) event);
+    };
+    private static final EventExecutor CLOSE_EXECUTOR = (listener, event) -> {
+        if (event instanceof InventoryCloseEvent) ((GuiListener) listener).onInventoryClose((InventoryCloseEvent) event);
+    };
+
+    //Which event handlers of GuiInventoryHolder a class overrides, as a bitmask of the *_HANDLER constants. Computed once per class.
+    private static final ClassValue<Integer> OVERRIDDEN_HANDLERS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> holderClass) {
+            int handlers = 0;
+            if (Overrides.overrides(holderClass, GuiInventoryHolder.class, "onOpen", InventoryOpenEvent.class)) handlers |= OPEN_HANDLER;
+            if (Overrides.overrides(holderClass, GuiInventoryHolder.class, "onClick", InventoryClickEvent.class)) handlers |= CLICK_HANDLER;
+            if (Overrides.overrides(holderClass, GuiInventoryHolder.class, "onDrag", InventoryDragEvent.class)) handlers |= DRAG_HANDLER;
+            if (Overrides.overrides(holderClass, GuiInventoryHolder.class, "onClose", InventoryCloseEvent.class)) handlers |= CLOSE_HANDLER;
+            return handlers;
+        }
+    };
+
     //Does not contain inventories whose holders are GuiInventoryHolders. See CraftInventoryCreator.
-    private final WeakHashMap<Object/*NMS Inventory*/, WeakReference<GuiInventoryHolder<?>>> guiInventories = new WeakHashMap<>();
+    //Thread-safe, because on Folia guis are registered and looked up from many region threads at once.
+    private final GuiRegistry guiInventories = new GuiRegistry();
+    //Bitmask of the InventoryTypes (by ordinal) of the inventories of all guis that were created, also those of our followers.
+    //Only ever grows, so it can give false positives but no false negatives. Lets events of other inventories skip getLocation() and getHolder().
+    private final AtomicLong guiInventoryTypes = new AtomicLong();
+    //Bitmask of the InventoryTypes (by ordinal) of the inventories in guiInventories. Only ever grows, so it can give false positives but no false negatives.
+    private final AtomicLong registeredInventoryTypes = new AtomicLong();
+
+    //Volatile, because the resolver can be replaced while events are handled on other (region) threads.
+    private volatile BaseInventoryResolver baseInventoryResolver = BaseInventoryResolver.detect();
+
+    //Non-null if this listener handles the events for the guis of other copies of GuiLib.
+    private volatile GuiCoordinator coordinator;
+    //Non-null if the listener of another copy of GuiLib handles the events for our guis.
+    private volatile RemoteCoordinator leader;
+    //Listens for the coordinator of the leader going away. Guarded by this.
+    private LeaderListener leaderListener;
+
+    //The event handlers that the guis that were created so far (also those of our followers) override, plus the always required handlers.
+    private final AtomicInteger requiredHandlers = new AtomicInteger(ALWAYS_REQUIRED_HANDLERS);
+    //In coordinated mode, our event handlers are registered per event type, only once a gui needs them. Guarded by this.
+    private int listenedHandlers;
+    private Plugin listenerPlugin;
+
+    //When disabled, the only overhead in the event handlers is a read of this field.
+    private volatile boolean recordingLatencies = false;
+    private final ConcurrentHashMap<Class<?>, HandlerLatencies> handlerLatencies = new ConcurrentHashMap<>();
+
+    //Null if clicks are not rate limited.
+    private volatile ClickRateLimiter clickRateLimiter;
 
     private GuiListener() {}
 
@@ -52,6 +132,140 @@ public class GuiListener implements Listener {
 
     // ===== registering stuff =====
 
+    /**
+     * Registers this listener in coordinated mode.
+     * <p>
+     * If the listener of another (relocated) copy of GuiLib was registered already, then this listener joins that listener's
+     * {@link GuiCoordinator}: the other listener then handles the inventory events for the guis of this copy, and this listener does not listen to
+     * inventory events itself. Otherwise, this listener registers its event handlers and becomes the coordinator that other copies can join.
+     * When the plugin of the coordinating copy is disabled, the remaining copies elect a new coordinator.
+     * <p>
+     * In coordinated mode, open and close events are only listened to once a gui class that overrides {@link GuiInventoryHolder#onOpen(InventoryOpenEvent)}
+     * or {@link GuiInventoryHolder#onClose(InventoryCloseEvent)} is instantiated. Click and drag events are always listened to, because they are cancelled for all guis.
+     * <p>
+     * The listeners of all copies must use equivalent {@linkplain BaseInventoryResolver base inventory resolvers}.
+     * Copies only coordinate with copies that speak the same {@linkplain GuiCoordinator#PROTOCOL_VERSION protocol version};
+     * when only a coordinator of a different version is registered, this listener handles the events for its own guis.
+     *
+     * @param plugin the plugin that shades this copy of GuiLib
+     */
+    public synchronized void register(Plugin plugin) {
+        Objects.requireNonNull(plugin, "Plugin cannot be null");
+        Server server = plugin.getServer();
+        ServicesManager servicesManager = server.getServicesManager();
+        PluginManager pluginManager = server.getPluginManager();
+
+        //start over, so that registering again (for example when the coordinator went away) does not register anything twice.
+        GuiCoordinator oldCoordinator = this.coordinator;
+        if (oldCoordinator != null) {
+            servicesManager.unregister(GuiCoordinator.class, oldCoordinator);
+            HandlerList.unregisterAll(oldCoordinator);
+            stopListening();
+            this.coordinator = null;
+        }
+        RemoteCoordinator oldLeader = this.leader;
+        if (oldLeader != null) {
+            oldLeader.leave(plugin);
+            this.leader = null;
+        }
+        if (leaderListener != null) {
+            HandlerList.unregisterAll(leaderListener);
+            leaderListener = null;
+        }
+
+        RemoteCoordinator remote = RemoteCoordinator.find(servicesManager, plugin);
+        if (remote != null && remote.join(plugin, GuiInventoryHolder.class, this::dispatchFromLeader)) {
+            //set the leader first, so that guis that are registered concurrently are not missed. registering them twice is harmless.
+            this.leader = remote;
+            //the leader needs to know about the guis that were registered before we joined.
+            long inventoryTypes = registeredInventoryTypes.get();
+            guiInventories.forEach((baseInventory, holder) -> remote.registerGui(holder, baseInventory, inventoryTypes));
+            remote.registerInventoryTypes(guiInventoryTypes.get());
+            remote.requireHandlers(requiredHandlers.get());
+            pluginManager.registerEvents(leaderListener = new LeaderListener(plugin), plugin);
+        } else {
+            GuiCoordinator newCoordinator = new GuiCoordinator(this);
+            this.coordinator = newCoordinator;
+            listenerPlugin = plugin;
+            listen();
+            pluginManager.registerEvents(newCoordinator, plugin);
+            servicesManager.register(GuiCoordinator.class, newCoordinator, plugin, ServicePriority.Normal);
+        }
+    }
+
+    //Accumulates event handlers that guis need, and makes sure that they are listened to.
+    void requireHandlers(int handlers) {
+        if ((requiredHandlers.get() & handlers) == handlers) return; //fast path: nothing new.
+        requiredHandlers.accumulateAndGet(handlers, (required, extra) -> required | extra);
+
+        RemoteCoordinator leader = this.leader;
+        if (leader != null) {
+            leader.requireHandlers(handlers);
+        } else if (coordinator != null) {
+            listen();
+        } //else: not registered in coordinated mode, all handlers are registered using registerEvents.
+    }
+
+    //Registers the listeners for the required event handlers that are not listened to yet.
+    private synchronized void listen() {
+        if (listenerPlugin == null) return;
+
+        int missingHandlers = requiredHandlers.get() & ~listenedHandlers;
+        if (missingHandlers == 0) return;
+
+        PluginManager pluginManager = listenerPlugin.getServer().getPluginManager();
+        if ((missingHandlers & OPEN_HANDLER) != 0)
+            pluginManager.registerEvent(InventoryOpenEvent.class, this, EventPriority.HIGH, OPEN_EXECUTOR, listenerPlugin, true);
+        if ((missingHandlers & CLICK_HANDLER) != 0)
+            pluginManager.registerEvent(InventoryClickEvent.class, this, EventPriority.HIGH, CLICK_EXECUTOR, listenerPlugin, true);
+        if ((missingHandlers & DRAG_HANDLER) != 0)
+            pluginManager.registerEvent(InventoryDragEvent.class, this, EventPriority.HIGH, DRAG_EXECUTOR, listenerPlugin, true);
+        if ((missingHandlers & CLOSE_HANDLER) != 0)
+            pluginManager.registerEvent(InventoryCloseEvent.class, this, EventPriority.HIGH, CLOSE_EXECUTOR, listenerPlugin, false);
+        listenedHandlers |= missingHandlers;
+    }
+
+    //Unregisters our event handlers.
+    private synchronized void stopListening() {
+        HandlerList.unregisterAll(this);
+        listenedHandlers = 0;
+        listenerPlugin = null;
+    }
+
+    private final class LeaderListener implements Listener {
+        private final Plugin plugin;
+
+        private LeaderListener(Plugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onServiceUnregister(ServiceUnregisterEvent event) {
+            RemoteCoordinator leader = GuiListener.this.leader;
+            if (leader != null && leader.getProvider() == event.getProvider().getProvider() && plugin.isEnabled()) {
+                //the plugin of the coordinating copy was disabled. elect a new coordinator, which might be us.
+                register(plugin);
+            }
+        }
+    }
+
+    //Invoked by the coordinating listener of another copy of GuiLib, for the guis of this copy.
+    //Our own rate limiter and latency recording apply, so that they can be configured through this copy too.
+    private void dispatchFromLeader(InventoryHolder holder, InventoryEvent event) {
+        GuiInventoryHolder<?> gui = (GuiInventoryHolder<?>) holder;
+        if (!gui.getPlugin().isEnabled()) return;
+
+        if (event instanceof InventoryClickEvent) {
+            handleClick(gui, (InventoryClickEvent) event);
+        } else if (event instanceof InventoryDragEvent) {
+            handleDrag(gui, (InventoryDragEvent) event);
+        } else if (event instanceof InventoryOpenEvent) {
+            handleOpen(gui, (InventoryOpenEvent) event);
+        } else if (event instanceof InventoryCloseEvent) {
+            handleClose(gui, (InventoryCloseEvent) event);
+        }
+    }
+
     /**
      * Registers an inventory gui.
      *
@@ -60,9 +274,37 @@ public class GuiListener implements Listener {
      * @return true if the gui was registered successfully, otherwise false
      */
     public boolean registerGui(GuiInventoryHolder<?> holder, Inventory inventory) {
+        requireHandlers(OVERRIDDEN_HANDLERS.get(holder.getClass())); //implicit null check
+        long typeBit = inventoryTypeBit(inventory.getType());
+        registerInventoryTypes(typeBit);
         if (holder == inventory.getHolder()) return true; //yes, reference equality
 
-        return guiInventories.putIfAbsent(getBaseInventory(inventory), new WeakReference<>(holder)) == null;
+        Object baseInventory = getBaseInventory(inventory);
+        boolean registered = guiInventories.putIfAbsent(baseInventory, holder);
+        if (registered) {
+            registeredInventoryTypes.accumulateAndGet(typeBit, (types, bit) -> types | bit);
+
+            RemoteCoordinator leader = this.leader;
+            if (leader != null) leader.registerGui(holder, baseInventory, typeBit);
+        }
+        return registered;
+    }
+
+    //Registers a gui of another copy of GuiLib that joined our coordinator.
+    boolean registerForeignGui(InventoryHolder holder, Object baseInventory, long inventoryTypes) {
+        registerInventoryTypes(inventoryTypes);
+        boolean registered = guiInventories.putIfAbsent(baseInventory, holder);
+        if (registered) registeredInventoryTypes.accumulateAndGet(inventoryTypes, (types, bits) -> types | bits);
+        return registered;
+    }
+
+    //Accumulates the types of the inventories of guis, also those of our followers, and passes new types on to our leader.
+    void registerInventoryTypes(long inventoryTypes) {
+        if ((guiInventoryTypes.get() & inventoryTypes) == inventoryTypes) return; //fast path: nothing new.
+        guiInventoryTypes.accumulateAndGet(inventoryTypes, (types, bits) -> types | bits);
+
+        RemoteCoordinator leader = this.leader;
+        if (leader != null) leader.registerInventoryTypes(inventoryTypes);
     }
 
     /**
@@ -71,17 +313,34 @@ public class GuiListener implements Listener {
      * @return the holder - or null if no holder was registered with the inventory.
      */
     public GuiInventoryHolder<?> getHolder(Inventory inventory) {
+        InventoryHolder holder = getGuiHolder(inventory);
+        //when we are the coordinator, the holder can be the holder of a gui of another copy of GuiLib.
+        return holder instanceof GuiInventoryHolder ? (GuiInventoryHolder<?>) holder : null;
+    }
+
+    //Get the holder of the gui. This is either one of our GuiInventoryHolders, or a holder of a gui of another copy of GuiLib that joined our coordinator.
+    private InventoryHolder getGuiHolder(Inventory inventory) {
+        //no gui has an inventory of this type, so don't bother with getLocation() and getHolder(), which can allocate.
+        if ((guiInventoryTypes.get() & inventoryTypeBit(inventory.getType())) == 0L) return null;
+
         // If the inventory's owner is a tile entity, don't call getHolder() in order to prevent snapshotting of the inventory during the BlockState calculation.
         // See: https://www.spigotmc.org/threads/why-items-with-lots-of-metadata-actually-cause-lag-an-inventoryholder-psa.607711/
         if (inventory.getLocation() != null) return null;
 
         InventoryHolder holder = inventory.getHolder();
-        if (holder instanceof GuiInventoryHolder) return (GuiInventoryHolder<?>) holder;
+        if (holder instanceof GuiInventoryHolder) return holder;
+        GuiCoordinator coordinator = this.coordinator;
+        if (holder != null && coordinator != null && coordinator.isFollowerHolder(holder)) return holder;
 
-        WeakReference<GuiInventoryHolder<?>> reference = guiInventories.get(getBaseInventory(inventory));
-        if (reference == null) return null;
+        //only consult the registry if a gui with an inventory of this type could have been registered in it.
+        if ((registeredInventoryTypes.get() & inventoryTypeBit(inventory.getType())) == 0L) return null;
 
-        return reference.get(); //can still be null
+        return guiInventories.get(getBaseInventory(inventory)); //can still be null
+    }
+
+    //InventoryType has fewer than 64 constants at the moment. Should that ever change, then the shift wraps around, which only results in false positives.
+    private static long inventoryTypeBit(InventoryType type) {
+        return 1L << type.ordinal();
     }
 
     /**
@@ -105,26 +364,119 @@ public class GuiListener implements Listener {
        return getHolder(inventory) != null;
     }
 
+    /**
+     * Get a snapshot of the statistics of the registry of gui inventories.
+     * Only inventories whose holder is not a {@link GuiInventoryHolder} (for example custom inventory implementations) are kept in the registry.
+     * Entries are expunged from the registry once their inventory or holder is garbage collected.
+     * <p>
+     * These statistics can be used to verify that guis do not leak: in a steady state, the number of alive entries should not keep on growing.
+     *
+     * @return the statistics
+     */
+    public RegistryStatistics getRegistryStatistics() {
+        guiInventories.expungeStaleEntries();
+        return new RegistryStatistics(guiInventories.getRegisteredCount(), guiInventories.getExpungedCount(), guiInventories.size());
+    }
+
+    /**
+     * Snapshot of the statistics of the gui registry.
+     * @see #getRegistryStatistics()
+     */
+    public static final class RegistryStatistics {
+
+        private final long registered;
+        private final long expunged;
+        private final int alive;
+
+        private RegistryStatistics(long registered, long expunged, int alive) {
+            this.registered = registered;
+            this.expunged = expunged;
+            this.alive = alive;
+        }
+
+        /**
+         * Get the total number of gui inventories that were registered.
+         * @return the number of registrations
+         */
+        public long getRegistered() {
+            return registered;
+        }
+
+        /**
+         * Get the total number of registrations that were expunged because their inventory or holder was garbage collected.
+         * @return the number of expunged registrations
+         */
+        public long getExpunged() {
+            return expunged;
+        }
+
+        /**
+         * Get the number of registrations that are currently alive.
+         * @return the number of alive registrations
+         */
+        public int getAlive() {
+            return alive;
+        }
+
+        @Override
+        public String toString() {
+            return "RegistryStatistics(registered=" + registered + ",expunged=" + expunged + ",alive=" + alive + ")";
+        }
+    }
+
     // We cannot ever make an unregisterGui method because to do that we would need to unset the GuiInventoryHolder from the Inventory.
     // So until such a method is added to bukkit's api, this is impossible to do without nms/reflection hacks.
 
     // ===== event stuff =====
 
-    private void onGuiInventoryEvent(InventoryEvent event, Consumer<GuiInventoryHolder> action) {
-        GuiInventoryHolder<?> guiHolder = getHolder(event.getInventory());
+    //Dedicated dispatch path: no lambdas are allocated, and inventories of types that no gui has are rejected by getGuiHolder before anything else.
+    private InventoryHolder getEventHolder(InventoryEvent event) {
+        InventoryHolder holder = getGuiHolder(event.getInventory());
 
-        if (guiHolder != null && guiHolder.getPlugin().isEnabled()) {
-            action.accept(guiHolder);
+        if (holder instanceof GuiInventoryHolder) {
+            return ((GuiInventoryHolder<?>) holder).getPlugin().isEnabled() ? holder : null;
+        } else if (holder != null) {
+            //a gui of another copy of GuiLib, which might have left our coordinator after its gui was registered.
+            GuiCoordinator coordinator = this.coordinator;
+            return coordinator != null && coordinator.isFollowerHolder(holder) ? holder : null;
+        } else {
+            return null;
         }
     }
 
+    //Tests whether the gui overrides the handler.
+    private static boolean isHandled(GuiInventoryHolder<?> gui, int handler) {
+        return (OVERRIDDEN_HANDLERS.get(gui.getClass()) & handler) != 0;
+    }
+
+    //Drags are debounced as if they were clicks on a slot that does not exist.
+    private static final int DRAG_SLOT = -1000;
+
+    private boolean isClickAllowed(HumanEntity clicker, int rawSlot) {
+        ClickRateLimiter limiter = clickRateLimiter;
+        return limiter == null || limiter.tryAcquire(clicker, rawSlot);
+    }
+
+    //Passes the event to the copy of GuiLib which owns the holder. That copy applies its own rate limiter and records its own latencies.
+    private void dispatchToFollower(InventoryHolder holder, InventoryEvent event) {
+        GuiCoordinator coordinator = this.coordinator;
+        if (coordinator != null) coordinator.dispatch(holder, event);
+    }
+
     /**
      * Delegates the InventoryOpenEvent to the {@link GuiInventoryHolder} if the top inventory is held by a Gui and the event is not cancelled.
      * @param event the InventoryOpenEvent
      */
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onInventoryOpen(InventoryOpenEvent event) {
-        onGuiInventoryEvent(event, gui -> gui.onOpen(event));
+        InventoryHolder holder = getEventHolder(event);
+        if (holder == null) return;
+
+        if (holder instanceof GuiInventoryHolder) {
+            handleOpen((GuiInventoryHolder<?>) holder, event);
+        } else {
+            dispatchToFollower(holder, event);
+        }
     }
 
     /**
@@ -134,10 +486,15 @@ public class GuiListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onInventoryClick(InventoryClickEvent event) {
-        onGuiInventoryEvent(event, gui -> {
-            event.setCancelled(true);
-            gui.onClick(event);
-        });
+        InventoryHolder holder = getEventHolder(event);
+        if (holder == null) return;
+
+        event.setCancelled(true);
+        if (holder instanceof GuiInventoryHolder) {
+            handleClick((GuiInventoryHolder<?>) holder, event);
+        } else {
+            dispatchToFollower(holder, event);
+        }
     }
 
     /**
@@ -147,10 +504,15 @@ public class GuiListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onInventoryDrag(InventoryDragEvent event) {
-        onGuiInventoryEvent(event, gui -> {
-            event.setCancelled(true);
-            gui.onDrag(event);
-        });
+        InventoryHolder holder = getEventHolder(event);
+        if (holder == null) return;
+
+        event.setCancelled(true);
+        if (holder instanceof GuiInventoryHolder) {
+            handleDrag((GuiInventoryHolder<?>) holder, event);
+        } else {
+            dispatchToFollower(holder, event);
+        }
     }
 
     /**
@@ -159,45 +521,232 @@ public class GuiListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGH)
     public void onInventoryClose(InventoryCloseEvent event) {
-        onGuiInventoryEvent(event, gui -> gui.onClose(event));
+        InventoryHolder holder = getEventHolder(event);
+        if (holder == null) return;
+
+        if (holder instanceof GuiInventoryHolder) {
+            handleClose((GuiInventoryHolder<?>) holder, event);
+        } else {
+            dispatchToFollower(holder, event);
+        }
     }
 
-    // ===== nms stuff =====
+    //The handle* methods invoke the handlers of our own guis, both for the events we listen to and for the events that our leader passes on.
 
-    private static final Class<?> CRAFT_INVENTORY;
-    private static final Method GET_INVENTORY;
-    static {
-        Class<?> craftInventoryClass = null;
-        Method getInventoryMethod = null;
-        Class<?> serverClass = Bukkit.getServer().getClass();
-        if ("CraftServer".equals(serverClass.getSimpleName())) {
-            String serverPackage = serverClass.getPackageName();
-            String className = serverPackage + ".inventory.CraftInventory";
-            try {
-                craftInventoryClass = Class.forName(className);
-                getInventoryMethod = craftInventoryClass.getMethod("getInventory");
-            } catch (ClassNotFoundException | NoSuchMethodException ignored) {
-            }
+    private void handleOpen(GuiInventoryHolder<?> gui, InventoryOpenEvent event) {
+        if (!isHandled(gui, OPEN_HANDLER)) return; //the gui inherits the no-op handler from GuiInventoryHolder.
+
+        boolean recordLatency = recordingLatencies;
+        long startNanos = recordLatency ? System.nanoTime() : 0L;
+        gui.onOpen(event);
+        if (recordLatency) recordLatency(gui, HandlerLatencies.OPEN, startNanos);
+    }
+
+    private void handleClick(GuiInventoryHolder<?> gui, InventoryClickEvent event) {
+        if (!isHandled(gui, CLICK_HANDLER)) return; //the gui inherits the no-op handler from GuiInventoryHolder.
+        if (!isClickAllowed(event.getWhoClicked(), event.getRawSlot())) return; //the event is cancelled already, so dropping it is safe.
+
+        boolean recordLatency = recordingLatencies;
+        long startNanos = recordLatency ? System.nanoTime() : 0L;
+        gui.onClick(event);
+        if (recordLatency) recordLatency(gui, HandlerLatencies.CLICK, startNanos);
+    }
+
+    private void handleDrag(GuiInventoryHolder<?> gui, InventoryDragEvent event) {
+        if (!isHandled(gui, DRAG_HANDLER)) return; //the gui inherits the no-op handler from GuiInventoryHolder.
+        if (!isClickAllowed(event.getWhoClicked(), DRAG_SLOT)) return; //the event is cancelled already, so dropping it is safe.
+
+        boolean recordLatency = recordingLatencies;
+        long startNanos = recordLatency ? System.nanoTime() : 0L;
+        gui.onDrag(event);
+        if (recordLatency) recordLatency(gui, HandlerLatencies.DRAG, startNanos);
+    }
+
+    private void handleClose(GuiInventoryHolder<?> gui, InventoryCloseEvent event) {
+        if (!isHandled(gui, CLOSE_HANDLER)) return; //the gui inherits the no-op handler from GuiInventoryHolder.
+
+        boolean recordLatency = recordingLatencies;
+        long startNanos = recordLatency ? System.nanoTime() : 0L;
+        gui.onClose(event);
+        if (recordLatency) recordLatency(gui, HandlerLatencies.CLOSE, startNanos);
+    }
+
+    // ===== rate limiting stuff =====
+
+    /**
+     * Set the rate limiter for clicks and drags in guis. Clicks and drags that exceed the rate are still cancelled, but are not passed to the gui.
+     * By default, clicks are not rate limited.
+     * <p>
+     * The rate limiter applies to the guis of this copy of GuiLib, also when the events are handled by the {@linkplain #register(Plugin) coordinating}
+     * listener of another copy. Each copy that shades GuiLib has its own rate limiter.
+     *
+     * @param clickRateLimiter the rate limiter, or null to stop limiting clicks
+     */
+    public void setClickRateLimiter(ClickRateLimiter clickRateLimiter) {
+        this.clickRateLimiter = clickRateLimiter;
+    }
+
+    /**
+     * Get the rate limiter for clicks and drags in guis.
+     * @return the rate limiter, or null if clicks are not rate limited
+     */
+    public ClickRateLimiter getClickRateLimiter() {
+        return clickRateLimiter;
+    }
+
+    // ===== latency stuff =====
+
+    /**
+     * Enables or disables recording the latencies of the event handlers of guis.
+     * When enabled, the time that is spent in {@link GuiInventoryHolder#onOpen(InventoryOpenEvent)}, {@link GuiInventoryHolder#onClick(InventoryClickEvent)},
+     * {@link GuiInventoryHolder#onDrag(InventoryDragEvent)} and {@link GuiInventoryHolder#onClose(InventoryCloseEvent)} is recorded per holder class.
+     * Recording is disabled by default.
+     * <p>
+     * Only the guis of this copy of GuiLib are recorded, also when the events are handled by the {@linkplain #register(Plugin) coordinating}
+     * listener of another copy. Each copy that shades GuiLib records the latencies of its own guis.
+     *
+     * @param recordingLatencies true to enable recording, false to disable recording
+     * @see #getHandlerLatencies()
+     */
+    public void setRecordingLatencies(boolean recordingLatencies) {
+        this.recordingLatencies = recordingLatencies;
+    }
+
+    /**
+     * Tests whether the latencies of the event handlers of guis are recorded.
+     * @return true if latencies are recorded, otherwise false
+     */
+    public boolean isRecordingLatencies() {
+        return recordingLatencies;
+    }
+
+    /**
+     * Get the latencies of the event handlers of guis, per holder class. Only classes of which a handler was invoked while recording are included.
+     * The histograms are live: they keep on recording while recording is enabled. Use {@link LatencyHistogram#snapshot()} to obtain stable figures.
+     *
+     * @return an unmodifiable copy of the mapping from holder classes to their latencies
+     * @see #setRecordingLatencies(boolean)
+     */
+    public Map<Class<?>, HandlerLatencies> getHandlerLatencies() {
+        return Collections.unmodifiableMap(new HashMap<>(handlerLatencies));
+    }
+
+    /**
+     * Forgets all recorded latencies.
+     */
+    public void resetHandlerLatencies() {
+        handlerLatencies.clear();
+    }
+
+    private void recordLatency(InventoryHolder holder, int handler, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        Class<?> holderClass = holder.getClass();
+        HandlerLatencies latencies = handlerLatencies.get(holderClass);
+        if (latencies == null) latencies = handlerLatencies.computeIfAbsent(holderClass, HandlerLatencies::new);
+        latencies.histograms[handler].record(nanos);
+    }
+
+    /**
+     * The latencies of the event handlers of a gui holder class.
+     * @see #getHandlerLatencies()
+     */
+    public static final class HandlerLatencies {
+
+        private static final int OPEN = 0, CLICK = 1, DRAG = 2, CLOSE = 3;
+
+        private final Class<?> holderClass;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[] {
+                new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram()
+        };
+
+        private HandlerLatencies(Class<?> holderClass) {
+            this.holderClass = holderClass;
+        }
+
+        /**
+         * Get the holder class of which the latencies are recorded.
+         * @return the holder class
+         */
+        public Class<?> getHolderClass() {
+            return holderClass;
+        }
+
+        /**
+         * Get the latencies of {@link GuiInventoryHolder#onOpen(InventoryOpenEvent)}.
+         * @return the histogram
+         */
+        public LatencyHistogram getOpenLatencies() {
+            return histograms[OPEN];
+        }
+
+        /**
+         * Get the latencies of {@link GuiInventoryHolder#onClick(InventoryClickEvent)}.
+         * @return the histogram
+         */
+        public LatencyHistogram getClickLatencies() {
+            return histograms[CLICK];
+        }
+
+        /**
+         * Get the latencies of {@link GuiInventoryHolder#onDrag(InventoryDragEvent)}.
+         * @return the histogram
+         */
+        public LatencyHistogram getDragLatencies() {
+            return histograms[DRAG];
+        }
+
+        /**
+         * Get the latencies of {@link GuiInventoryHolder#onClose(InventoryCloseEvent)}.
+         * @return the histogram
+         */
+        public LatencyHistogram getCloseLatencies() {
+            return histograms[CLOSE];
         }
-        CRAFT_INVENTORY = craftInventoryClass;
-        GET_INVENTORY = getInventoryMethod;
+
+        @Override
+        public String toString() {
+            return "HandlerLatencies(holderClass=" + holderClass.getName()
+                    + ",open=" + histograms[OPEN].snapshot()
+                    + ",click=" + histograms[CLICK].snapshot()
+                    + ",drag=" + histograms[DRAG].snapshot()
+                    + ",close=" + histograms[CLOSE].snapshot() + ")";
+        }
+    }
+
+    // ===== nms stuff =====
+
+    /**
+     * Get the resolver that is used to obtain the identities of registered inventories.
+     * @return the base inventory resolver
+     */
+    public BaseInventoryResolver getBaseInventoryResolver() {
+        return baseInventoryResolver;
+    }
+
+    /**
+     * Set the resolver that is used to obtain the identities of registered inventories.
+     * By default, the resolver obtained by {@link BaseInventoryResolver#detect()} is used.
+     * <p>
+     * The resolver can only be changed as long as no inventories have been registered,
+     * because the identities of the inventories that were registered earlier would not be resolved again.
+     *
+     * @param resolver the new resolver
+     * @throws IllegalStateException if inventories were registered already
+     */
+    public void setBaseInventoryResolver(BaseInventoryResolver resolver) throws IllegalStateException {
+        Objects.requireNonNull(resolver, "Resolver cannot be null");
+        if (!guiInventories.isEmpty()) throw new IllegalStateException("Cannot change the base inventory resolver after inventories have been registered");
+        this.baseInventoryResolver = resolver;
     }
 
     /**
      * If the inventory is a CraftInventory, get the NMS inventory. If not, just return the bukkit Inventory.
      * @param inventory the bukkit inventory
      * @return the authoritative inventory
+     * @see BaseInventoryResolver
      */
-    //This works around a bug in CraftBukkit where CraftInventory instances cannot be used as WeakHashMap keys because CraftInventory instances are created on-demand.
-    //They are not stored in the nms inventory, hence to obtain an object that persists the inventory, we need the NMS inventory: IInventory(mc-dev) Container(moj-map).
-    private static Object getBaseInventory(Inventory inventory) {
-        if (CRAFT_INVENTORY != null && GET_INVENTORY != null && CRAFT_INVENTORY.isInstance(inventory)) {
-            try {
-                return GET_INVENTORY.invoke(inventory);
-            } catch (InvocationTargetException | IllegalAccessException ignored) {
-            }
-        }
-        return inventory;
+    private Object getBaseInventory(Inventory inventory) {
+        return baseInventoryResolver.getBaseInventory(inventory);
     }
 
 }
@@ -0,0 +1,294 @@
+package xyz.janboerman.guilib.api;
+
+import org.bukkit.inventory.InventoryHolder;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe registry that maps inventories to their gui holders, by identity. Both inventories and holders are weakly referenced.
+ * Holders are typed as {@link InventoryHolder} because the registry of the coordinating listener also contains the holders of
+ * other (relocated) copies of GuiLib, see {@link GuiCoordinator}.
+ * <p>
+ * The registry is split up into segments which each have their own lock, such that registrations on different region threads (Folia)
+ * do not contend with each other. Lookups are optimistic and do not acquire any lock, unless they raced with a write to the same segment.
+ * To make optimistic reads safe, the bucket chains are immutable: writers never relink nodes, they replace (a prefix of) a chain with new nodes,
+ * and publish a resized table through a volatile write. A reader can therefore never observe a cycle or a half-built chain.
+ * <p>
+ * Entries are expunged as soon as either their inventory or their holder is garbage collected. Both references are enqueued in
+ * the same {@link ReferenceQueue}, which is drained by the threads that use the registry, so no background thread is needed.
+ */
+final class GuiRegistry {
+
+    private static final int SEGMENT_COUNT = 16;        //must be a power of two
+    private static final int SEGMENT_SHIFT = 24;        //use the high bits of the hash to select the segment, and the low bits to select the bucket
+    private static final int INITIAL_CAPACITY = 16;     //must be a power of two
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final ReferenceQueue<Object> collectedReferences = new ReferenceQueue<>();
+
+    private final LongAdder registeredCount = new LongAdder();
+    private final LongAdder expungedCount = new LongAdder();
+
+    GuiRegistry() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private static int hash(Object baseInventory) {
+        int h = System.identityHashCode(baseInventory);
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> SEGMENT_SHIFT) & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * Get the holder that was registered for the inventory.
+     * @param baseInventory the inventory
+     * @return the holder, or null if no holder was registered, or if the holder was garbage collected
+     */
+    InventoryHolder get(Object baseInventory) {
+        int hash = hash(baseInventory);
+        return segmentFor(hash).get(baseInventory, hash);
+    }
+
+    /**
+     * Registers the holder for the inventory, unless a holder was registered already.
+     * @param baseInventory the inventory
+     * @param holder the holder
+     * @return true if the holder was registered, false if a different holder was registered for the inventory already
+     */
+    boolean putIfAbsent(Object baseInventory, InventoryHolder holder) {
+        expungeStaleEntries();
+
+        int hash = hash(baseInventory);
+        return segmentFor(hash).putIfAbsent(baseInventory, hash, holder, this);
+    }
+
+    /**
+     * Performs the action for every registration of which both the inventory and the holder are still alive.
+     * The action must not register inventories in this registry.
+     * @param action the action
+     */
+    void forEach(BiConsumer<Object, InventoryHolder> action) {
+        for (Segment segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    /**
+     * Tests whether no inventories are registered.
+     * @return true if the registry is empty
+     */
+    boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (segment.count != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of registered inventories.
+     * This number includes registrations of which the inventory was garbage collected but not yet expunged.
+     * @return the size of this registry
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Get the total number of registrations since this registry was created.
+     * @return the number of registrations
+     */
+    long getRegisteredCount() {
+        return registeredCount.sum();
+    }
+
+    /**
+     * Get the total number of entries that were expunged because their inventory or holder was garbage collected.
+     * @return the number of expunged entries
+     */
+    long getExpungedCount() {
+        return expungedCount.sum();
+    }
+
+    /**
+     * Removes the entries of which the inventories or holders have been garbage collected.
+     */
+    void expungeStaleEntries() {
+        Reference<?> reference;
+        while ((reference = collectedReferences.poll()) != null) {
+            Entry entry = reference instanceof Entry ? (Entry) reference : ((HolderReference) reference).entry;
+            //if both the inventory and the holder were collected, then the second removal is a no-op.
+            if (segmentFor(entry.hash).remove(entry)) expungedCount.increment();
+        }
+    }
+
+    private static final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+        private volatile Node[] table = new Node[INITIAL_CAPACITY];   //written while holding the write lock, read optimistically
+        private volatile int count;                                     //written while holding the write lock
+
+        InventoryHolder get(Object baseInventory, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                //chains are immutable, so this terminates even if it races with a write. the result is only trusted if no write happened.
+                Node[] table = this.table;
+                Entry entry = find(table, baseInventory, hash);
+                InventoryHolder holder = entry == null ? null : entry.holder.get();
+                if (lock.validate(stamp)) return holder;
+            }
+
+            //an optimistic read was not possible or not valid - fall back to a read lock.
+            stamp = lock.readLock();
+            try {
+                Entry entry = find(table, baseInventory, hash);
+                return entry == null ? null : entry.holder.get();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean putIfAbsent(Object baseInventory, int hash, InventoryHolder holder, GuiRegistry registry) {
+            long stamp = lock.writeLock();
+            try {
+                Node[] table = this.table;
+                Entry existing = find(table, baseInventory, hash);
+                if (existing != null) {
+                    if (existing.holder.get() != null) return false;
+                    //the previous holder was garbage collected, but the inventory was not. replace the entry.
+                    unlink(table, existing);
+                    count -= 1;
+                    registry.expungedCount.increment();
+                }
+
+                int index = hash & (table.length - 1);
+                table[index] = new Node(new Entry(baseInventory, hash, holder, registry.collectedReferences), table[index]);
+                count += 1;
+                registry.registeredCount.increment();
+
+                if (count > table.length - (table.length >>> 2)) resize(registry); //load factor 0.75
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(BiConsumer<Object, InventoryHolder> action) {
+            long stamp = lock.readLock();
+            try {
+                for (Node head : table) {
+                    for (Node node = head; node != null; node = node.next) {
+                        Entry entry = node.entry;
+                        Object baseInventory = entry.get();
+                        InventoryHolder holder = entry.holder.get();
+                        if (baseInventory != null && holder != null) action.accept(baseInventory, holder);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean remove(Entry entry) {
+            long stamp = lock.writeLock();
+            try {
+                boolean removed = unlink(table, entry);
+                if (removed) count -= 1;
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        //must hold the write lock. builds new chains, the old table stays intact for optimistic readers.
+        private void resize(GuiRegistry registry) {
+            Node[] oldTable = this.table;
+            Node[] newTable = new Node[oldTable.length << 1];
+            int liveCount = 0;
+            for (Node head : oldTable) {
+                for (Node node = head; node != null; node = node.next) {
+                    Entry entry = node.entry;
+                    if (entry.get() != null && entry.holder.get() != null) {
+                        int index = entry.hash & (newTable.length - 1);
+                        newTable[index] = new Node(entry, newTable[index]);
+                        liveCount += 1;
+                    } else {
+                        //the inventory or holder was collected, drop the entry. expunging it later is a no-op.
+                        registry.expungedCount.increment();
+                    }
+                }
+            }
+            this.table = newTable; //volatile write publishes the new chains
+            this.count = liveCount;
+        }
+
+        private static Entry find(Node[] table, Object baseInventory, int hash) {
+            for (Node node = table[hash & (table.length - 1)]; node != null; node = node.next) {
+                Entry entry = node.entry;
+                if (entry.hash == hash && entry.get() == baseInventory) return entry; //yes, reference equality
+            }
+            return null;
+        }
+
+        //must hold the write lock. copies the nodes before the removed node, the nodes after it are shared with the old chain.
+        private static boolean unlink(Node[] table, Entry entry) {
+            int index = entry.hash & (table.length - 1);
+            Node head = table[index];
+            Node removed = head;
+            while (removed != null && removed.entry != entry) removed = removed.next;
+            if (removed == null) return false;
+
+            Node newHead = removed.next;
+            for (Node node = head; node != removed; node = node.next) {
+                newHead = new Node(node.entry, newHead);
+            }
+            table[index] = newHead;
+            return true;
+        }
+    }
+
+    //Immutable link in a bucket chain. Final fields guarantee that optimistic readers see fully constructed nodes.
+    private static final class Node {
+        private final Entry entry;
+        private final Node next;
+
+        private Node(Entry entry, Node next) {
+            this.entry = entry;
+            this.next = next;
+        }
+    }
+
+    private static final class Entry extends WeakReference<Object/*NMS Inventory*/> {
+        private final int hash;
+        private final HolderReference holder;
+
+        private Entry(Object baseInventory, int hash, InventoryHolder holder, ReferenceQueue<Object> queue) {
+            super(baseInventory, queue);
+            this.hash = hash;
+            this.holder = new HolderReference(holder, this, queue);
+        }
+    }
+
+    private static final class HolderReference extends WeakReference<InventoryHolder> {
+        private final Entry entry;
+
+        private HolderReference(InventoryHolder holder, Entry entry, ReferenceQueue<Object> queue) {
+            super(holder, queue);
+            this.entry = entry;
+        }
+    }
+
+}
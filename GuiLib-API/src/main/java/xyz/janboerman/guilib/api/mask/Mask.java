@@ -75,6 +75,8 @@ public interface Mask<Symbol, Item> {
 
     /**
      * Apply a bulk update to a menu. All the menu slots that are supported by the pattern and mask will get an update.
+     * The update is applied in a single {@linkplain MenuHolder#batch() batch}, which still calls {@link MenuHolder#setButton(int, MenuButton)}
+     * per slot if the class of the menu overrides it.
      * @param mask the mask
      * @param pattern the pattern
      * @param menu the inventory
@@ -83,11 +85,13 @@ public interface Mask<Symbol, Item> {
      * @param <MH> the MenuHolder type
      */
     public static <Symbol, P extends Plugin, MH extends MenuHolder<P>> void applyMenu(Mask<Symbol, ? extends MenuButton<MH>> mask, Pattern<Symbol> pattern, MH menu) {
+        var batch = menu.batch();
         for (int slot = 0; slot < menu.getInventory().getSize(); slot++) {
             Symbol symbol = pattern.getSymbol(slot);
             var button = mask.getItem(symbol);
-            if (button.isPresent()) menu.setButton(slot, button.get());
+            if (button.isPresent()) batch.setButton(slot, button.get());
         }
+        batch.commit();
     }
 
 }
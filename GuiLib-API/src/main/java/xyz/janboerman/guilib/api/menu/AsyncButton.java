@@ -0,0 +1,208 @@
+package xyz.janboerman.guilib.api.menu;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import xyz.janboerman.guilib.util.Overrides;
+import xyz.janboerman.guilib.util.Scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+
+/**
+ * A button that performs expensive work off the main thread when clicked.
+ * <p>
+ * When the button is clicked, the computation runs on the executor of this button. The click event itself is not passed to the computation,
+ * because events must not be used after they have been handled. Once the computation completes, its result is applied on the thread
+ * that owns the player who clicked (the main thread on Bukkit, the player's region thread on Folia), where it is safe to update icons and inventories.
+ * <p>
+ * The click event stays cancelled, so the time that is spent on the main thread per click does not depend on how much work the computation does.
+ *
+ * @param <MH> the menu holder type
+ * @param <R> the type of the result of the computation
+ */
+public class AsyncButton<MH extends MenuHolder<?>, R> extends ItemButton<MH> {
+
+    //Whether a class overrides compute and apply, as a bitmask. Computed once per class.
+    private static final int OVERRIDES_COMPUTE = 1, OVERRIDES_APPLY = 2;
+    private static final ClassValue<Integer> OVERRIDES = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> buttonClass) {
+            int overrides = 0;
+            if (Overrides.overrides(buttonClass, AsyncButton.class, "compute", MenuHolder.class, HumanEntity.class, ClickType.class)) overrides |= OVERRIDES_COMPUTE;
+            if (Overrides.overrides(buttonClass, AsyncButton.class, "apply", MenuHolder.class, HumanEntity.class, Object.class)) overrides |= OVERRIDES_APPLY;
+            return overrides;
+        }
+    };
+
+    private final Executor executor;
+    //null if the subclass overrides compute or apply respectively.
+    private volatile Computation<MH, R> computation;
+    private volatile ResultHandler<MH, R> resultHandler;
+
+    /**
+     * Protected constructor for async buttons that override {@link #compute(MenuHolder, HumanEntity, ClickType)} and {@link #apply(MenuHolder, HumanEntity, Object)}.
+     * A subclass that overrides only one of them must set the other one using {@link #setComputation(Computation)} or {@link #setResultHandler(ResultHandler)}
+     * before the button is clicked, otherwise {@link #onClick(MenuHolder, InventoryClickEvent)} throws an {@link IllegalStateException}.
+     * @param icon the icon
+     * @param executor the executor that runs the computations
+     */
+    protected AsyncButton(ItemStack icon, Executor executor) {
+        super(icon);
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+    }
+
+    /**
+     * Creates the AsyncButton.
+     * @param icon the icon of the button
+     * @param executor the executor that runs the computations
+     * @param computation the computation that runs on the executor
+     * @param resultHandler the handler that applies the result on the thread that owns the player who clicked
+     */
+    public AsyncButton(ItemStack icon, Executor executor, Computation<MH, R> computation, ResultHandler<MH, R> resultHandler) {
+        this(icon, executor);
+        setComputation(computation);
+        setResultHandler(resultHandler);
+    }
+
+    /**
+     * Runs {@link #compute(MenuHolder, HumanEntity, ClickType)} on the executor,
+     * and schedules {@link #apply(MenuHolder, HumanEntity, Object)} or {@link #onFailure(MenuHolder, HumanEntity, Throwable)} once it completes.
+     * @param menuHolder the menu holder
+     * @param event the InventoryClickEvent
+     * @throws IllegalStateException if compute is not overridden and no computation was set, or if apply is not overridden and no result handler was set
+     */
+    @Override
+    public void onClick(MH menuHolder, InventoryClickEvent event) {
+        //fail before any work is done, rather than on the executor or in the scheduled task.
+        int overrides = OVERRIDES.get(getClass());
+        if (computation == null && (overrides & OVERRIDES_COMPUTE) == 0) throw new IllegalStateException(getClass().getName() + " must override compute or set a computation");
+        if (resultHandler == null && (overrides & OVERRIDES_APPLY) == 0) throw new IllegalStateException(getClass().getName() + " must override apply or set a result handler");
+
+        HumanEntity clicker = event.getWhoClicked();
+        ClickType clickType = event.getClick();
+        Plugin plugin = menuHolder.getPlugin();
+
+        CompletableFuture.supplyAsync(() -> compute(menuHolder, clicker, clickType), executor).whenComplete((result, error) -> {
+            //tasks can't be scheduled for disabled plugins.
+            if (!plugin.isEnabled()) return;
+
+            Scheduler.get().runTaskLater(plugin, clicker, () -> {
+                if (error == null) {
+                    apply(menuHolder, clicker, result);
+                } else {
+                    onFailure(menuHolder, clicker, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                }
+            });
+        });
+    }
+
+    /**
+     * Performs the expensive work. This method is called on the executor of this button, so it must not modify the menu, the inventory or the player.
+     * The default implementation delegates to the computation.
+     *
+     * @param menuHolder the menu holder
+     * @param clicker the player who clicked
+     * @param clickType the type of the click
+     * @return the result
+     * @throws IllegalStateException if this method is not overridden and no computation was set
+     */
+    protected R compute(MH menuHolder, HumanEntity clicker, ClickType clickType) {
+        Computation<MH, R> computation = this.computation;
+        if (computation == null) throw new IllegalStateException(getClass().getName() + " must override compute or set a computation");
+        return computation.compute(menuHolder, clicker, clickType);
+    }
+
+    /**
+     * Applies the result of the computation. This method is called on the thread that owns the player who clicked.
+     * The default implementation delegates to the result handler.
+     *
+     * @param menuHolder the menu holder
+     * @param clicker the player who clicked
+     * @param result the result of the computation
+     * @throws IllegalStateException if this method is not overridden and no result handler was set
+     */
+    protected void apply(MH menuHolder, HumanEntity clicker, R result) {
+        ResultHandler<MH, R> resultHandler = this.resultHandler;
+        if (resultHandler == null) throw new IllegalStateException(getClass().getName() + " must override apply or set a result handler");
+        resultHandler.apply(menuHolder, clicker, result);
+    }
+
+    /**
+     * Called when the computation failed. This method is called on the thread that owns the player who clicked.
+     * The default implementation logs the error using the logger of the menu's plugin.
+     *
+     * @param menuHolder the menu holder
+     * @param clicker the player who clicked
+     * @param error the error that was thrown by the computation
+     */
+    protected void onFailure(MH menuHolder, HumanEntity clicker, Throwable error) {
+        menuHolder.getPlugin().getLogger().log(Level.WARNING, "Computation of async button failed for " + clicker.getName(), error);
+    }
+
+    /**
+     * Get the executor that runs the computations.
+     * @return the executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the computation.
+     * @param computation the computation
+     */
+    public void setComputation(Computation<MH, R> computation) {
+        this.computation = Objects.requireNonNull(computation, "Computation cannot be null");
+    }
+
+    /**
+     * Set the result handler.
+     * @param resultHandler the result handler
+     */
+    public void setResultHandler(ResultHandler<MH, R> resultHandler) {
+        this.resultHandler = Objects.requireNonNull(resultHandler, "Result handler cannot be null");
+    }
+
+    /**
+     * The expensive work of an {@link AsyncButton}, which runs on the button's executor.
+     * @param <MH> the menu holder type
+     * @param <R> the type of the result
+     */
+    @FunctionalInterface
+    public static interface Computation<MH extends MenuHolder<?>, R> {
+
+        /**
+         * Performs the work. Implementations must not modify the menu, the inventory or the player.
+         * @param menuHolder the menu holder
+         * @param clicker the player who clicked
+         * @param clickType the type of the click
+         * @return the result
+         */
+        public R compute(MH menuHolder, HumanEntity clicker, ClickType clickType);
+
+    }
+
+    /**
+     * Applies the result of the work of an {@link AsyncButton}, on the thread that owns the player who clicked.
+     * @param <MH> the menu holder type
+     * @param <R> the type of the result
+     */
+    @FunctionalInterface
+    public static interface ResultHandler<MH extends MenuHolder<?>, R> {
+
+        /**
+         * Applies the result, for example by updating the icon of the button or the contents of the menu.
+         * @param menuHolder the menu holder
+         * @param clicker the player who clicked
+         * @param result the result of the computation
+         */
+        public void apply(MH menuHolder, HumanEntity clicker, R result);
+
+    }
+}
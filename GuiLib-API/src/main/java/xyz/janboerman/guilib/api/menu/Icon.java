@@ -0,0 +1,106 @@
+package xyz.janboerman.guilib.api.menu;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Objects;
+
+/**
+ * An immutable handle to the icon of a {@link MenuButton}.
+ * <p>
+ * Unlike {@link MenuButton#getIcon()}, obtaining the handle of a button does not clone the icon's ItemStack and ItemMeta.
+ * {@link MenuHolder} writes the stack of the handle into its inventory directly, because Bukkit's inventories copy stacks that are put into them.
+ * A mutable copy is only made when one is asked for, through {@link #toItemStack()}.
+ *
+ * @see MenuButton#getIconHandle()
+ */
+public final class Icon {
+
+    private final ItemStack stack;
+
+    private Icon(ItemStack stack) {
+        this.stack = stack;
+    }
+
+    /**
+     * Creates an icon from a clone of the ItemStack.
+     * @param stack the ItemStack
+     * @return the icon, or null if the stack is null
+     */
+    public static Icon of(ItemStack stack) {
+        return stack == null ? null : new Icon(stack.clone());
+    }
+
+    //the caller guarantees that the stack is not mutated while the icon is in use.
+    static Icon wrap(ItemStack stack) {
+        return stack == null ? null : new Icon(stack);
+    }
+
+    //the stack of the icon, which must not be mutated. only pass it to methods that copy it, such as Inventory#setItem.
+    static ItemStack unwrap(Icon icon) {
+        return icon == null ? null : icon.stack;
+    }
+
+    /**
+     * Get the ItemStack of the icon of a button, to be written into an {@link Inventory}.
+     * @param button the button
+     * @return the ItemStack, which must not be mutated, or null if the button has no icon
+     */
+    static ItemStack iconStack(MenuButton<?> button) {
+        return unwrap(button.getIconHandle());
+    }
+
+    /**
+     * Get a mutable copy of the ItemStack of this icon.
+     * @return a new ItemStack
+     */
+    public ItemStack toItemStack() {
+        return stack.clone();
+    }
+
+    /**
+     * Get the material of this icon.
+     * @return the material
+     */
+    public Material getType() {
+        return stack.getType();
+    }
+
+    /**
+     * Get the amount of this icon.
+     * @return the amount
+     */
+    public int getAmount() {
+        return stack.getAmount();
+    }
+
+    /**
+     * Tests whether the ItemStack is similar to the stack of this icon, ignoring the amount.
+     * @param stack the ItemStack
+     * @return true if the stacks are similar, otherwise false
+     * @see ItemStack#isSimilar(ItemStack)
+     */
+    public boolean isSimilar(ItemStack stack) {
+        return this.stack.isSimilar(stack);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof Icon)) return false;
+
+        Icon that = (Icon) o;
+        return Objects.equals(this.stack, that.stack);
+    }
+
+    @Override
+    public int hashCode() {
+        return stack.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Icon(" + stack + ")";
+    }
+}
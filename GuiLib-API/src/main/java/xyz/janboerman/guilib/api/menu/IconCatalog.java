@@ -0,0 +1,237 @@
+package xyz.janboerman.guilib.api.menu;
+
+import org.bukkit.Material;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import xyz.janboerman.guilib.api.ItemBuilder;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A compact catalog of icon descriptors, for menus that page through very many entries.
+ * <p>
+ * Every entry is described by a material, an amount, a name key, a lore template id and custom model data, which are stored in primitive arrays
+ * (one array per property) instead of as ItemStacks with ItemMeta. An entry only becomes an ItemStack when it is rendered,
+ * which should be when its slot is shown on a visible page. Names and lore are resolved through functions that are shared by all entries,
+ * so a name or lore that is used by many entries is stored once.
+ * <p>
+ * A {@link ListMenu} can page over the entries of a catalog, such that only the entries on the page that is shown are rendered:
+ * <pre>{@code
+ * new ListMenu<>(plugin, 54, "Catalog", catalog.indices(), catalog.slotRenderer((event, index) -> ...));
+ * }</pre>
+ * <p>
+ * This class is not thread-safe.
+ */
+public class IconCatalog {
+
+    /** The name key or lore template id of entries without a name or lore. */
+    public static final int NONE = -1;
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final IntFunction<String> names;
+    private final IntFunction<? extends List<String>> loreTemplates;
+
+    private short[] materials = new short[INITIAL_CAPACITY];
+    private byte[] amounts = new byte[INITIAL_CAPACITY];
+    private int[] nameKeys = new int[INITIAL_CAPACITY];
+    private int[] loreTemplateIds = new int[INITIAL_CAPACITY];
+    private int[] customModelData = new int[INITIAL_CAPACITY];
+    private int size;
+    private final List<Integer> indices = new Indices();
+
+    /**
+     * Creates an empty catalog.
+     * @param names resolves name keys to display names
+     * @param loreTemplates resolves lore template ids to lore
+     */
+    public IconCatalog(IntFunction<String> names, IntFunction<? extends List<String>> loreTemplates) {
+        this.names = Objects.requireNonNull(names, "Names cannot be null");
+        this.loreTemplates = Objects.requireNonNull(loreTemplates, "Lore templates cannot be null");
+    }
+
+    /**
+     * Adds an entry to the catalog.
+     * @param material the material
+     * @param amount the amount, between 1 and 127
+     * @param nameKey the key of the display name, or {@link #NONE}
+     * @param loreTemplateId the id of the lore, or {@link #NONE}
+     * @param customModelData the custom model data, or 0 for none
+     * @return the index of the new entry
+     * @throws IllegalArgumentException if the amount is out of range
+     */
+    public int add(Material material, int amount, int nameKey, int loreTemplateId, int customModelData) {
+        Objects.requireNonNull(material, "Material cannot be null");
+        if (amount < 1 || amount > Byte.MAX_VALUE) throw new IllegalArgumentException("Amount must be between 1 and " + Byte.MAX_VALUE + ", got: " + amount);
+
+        if (size == materials.length) grow();
+
+        int index = size++;
+        this.materials[index] = (short) material.ordinal();
+        this.amounts[index] = (byte) amount;
+        this.nameKeys[index] = nameKey;
+        this.loreTemplateIds[index] = loreTemplateId;
+        this.customModelData[index] = customModelData;
+        return index;
+    }
+
+    /**
+     * Adds an entry with amount 1, no lore and no custom model data to the catalog.
+     * @param material the material
+     * @param nameKey the key of the display name, or {@link #NONE}
+     * @return the index of the new entry
+     */
+    public int add(Material material, int nameKey) {
+        return add(material, 1, nameKey, NONE, 0);
+    }
+
+    private void grow() {
+        int capacity = materials.length << 1;
+        materials = Arrays.copyOf(materials, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        nameKeys = Arrays.copyOf(nameKeys, capacity);
+        loreTemplateIds = Arrays.copyOf(loreTemplateIds, capacity);
+        customModelData = Arrays.copyOf(customModelData, capacity);
+    }
+
+    /**
+     * Shrinks the arrays of this catalog to its size, to release the memory that was reserved for more entries.
+     */
+    public void trimToSize() {
+        if (size == materials.length) return;
+        materials = Arrays.copyOf(materials, size);
+        amounts = Arrays.copyOf(amounts, size);
+        nameKeys = Arrays.copyOf(nameKeys, size);
+        loreTemplateIds = Arrays.copyOf(loreTemplateIds, size);
+        customModelData = Arrays.copyOf(customModelData, size);
+    }
+
+    /**
+     * Get the number of entries in this catalog.
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the material of an entry.
+     * @param index the index of the entry
+     * @return the material
+     */
+    public Material getMaterial(int index) {
+        return MATERIALS[materials[Objects.checkIndex(index, size)]];
+    }
+
+    /**
+     * Get the amount of an entry.
+     * @param index the index of the entry
+     * @return the amount
+     */
+    public int getAmount(int index) {
+        return amounts[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Get the name key of an entry.
+     * @param index the index of the entry
+     * @return the name key, or {@link #NONE}
+     */
+    public int getNameKey(int index) {
+        return nameKeys[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Get the lore template id of an entry.
+     * @param index the index of the entry
+     * @return the lore template id, or {@link #NONE}
+     */
+    public int getLoreTemplateId(int index) {
+        return loreTemplateIds[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Get the custom model data of an entry.
+     * @param index the index of the entry
+     * @return the custom model data, or 0 if the entry has none
+     */
+    public int getCustomModelData(int index) {
+        return customModelData[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Builds the ItemStack of an entry. This method should be called only when the entry is rendered.
+     * @param index the index of the entry
+     * @return a new ItemStack
+     */
+    public ItemStack render(int index) {
+        Objects.checkIndex(index, size);
+
+        ItemBuilder builder = new ItemBuilder(MATERIALS[materials[index]]).amount(amounts[index]);
+        if (nameKeys[index] != NONE) builder.name(names.apply(nameKeys[index]));
+        if (loreTemplateIds[index] != NONE) builder.lore(loreTemplates.apply(loreTemplateIds[index]));
+        if (customModelData[index] != 0) builder.customModelData(customModelData[index]);
+        return builder.build();
+    }
+
+    /**
+     * Builds the icon of an entry. This method should be called only when the entry is rendered.
+     * @param index the index of the entry
+     * @return a new icon
+     */
+    public Icon renderIcon(int index) {
+        return Icon.wrap(render(index)); //the stack was just built, nobody else has a reference to it.
+    }
+
+    /**
+     * Get a view of the indices of the entries in this catalog, from 0 up to the size of this catalog.
+     * Entries that are added to the catalog are added to the view as well.
+     * @return the indices
+     * @see #slotRenderer(ObjIntConsumer)
+     */
+    public List<Integer> indices() {
+        return indices;
+    }
+
+    /**
+     * Creates a renderer for a {@link ListMenu} that pages over the {@linkplain #indices() indices} of this catalog.
+     * The renderer creates a button with the {@linkplain #renderIcon(int) rendered icon} of an entry, only when the entry is shown.
+     * @param clickHandler called with the click event and the index of the entry when the button is clicked, or null for buttons that do nothing
+     * @return the renderer
+     */
+    public ListMenu.SlotRenderer<Integer> slotRenderer(ObjIntConsumer<InventoryClickEvent> clickHandler) {
+        return (element, index) -> {
+            int entry = element;
+            return new ItemButton<MenuHolder<?>>(renderIcon(entry)) {
+                @Override
+                public void onClick(MenuHolder<?> holder, InventoryClickEvent event) {
+                    if (clickHandler != null) clickHandler.accept(event, entry);
+                }
+            };
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "IconCatalog(size=" + size + ")";
+    }
+
+    private final class Indices extends AbstractList<Integer> implements RandomAccess {
+        @Override
+        public Integer get(int index) {
+            return Objects.checkIndex(index, size);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
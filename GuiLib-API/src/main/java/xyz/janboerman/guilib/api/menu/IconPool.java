@@ -0,0 +1,178 @@
+package xyz.janboerman.guilib.api.menu;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool that canonicalizes icons: equal ItemStacks are interned to the same {@link Icon} instance, so that identical icons in many menus
+ * (fillers, back buttons, next-page and previous-page buttons) share one ItemStack instead of each holding their own copy.
+ * <p>
+ * Icons are weakly referenced by the pool; icons that are no longer used by any button are dropped from the pool.
+ * The pool is thread-safe.
+ *
+ * @see ItemButton#ItemButton(ItemStack)
+ */
+public final class IconPool {
+
+    private static final IconPool INSTANCE = new IconPool();
+
+    private final ConcurrentHashMap<Key, IconReference> icons = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Icon> collectedIcons = new ReferenceQueue<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder savedCopies = new LongAdder();
+
+    /**
+     * Creates an empty pool. Most plugins should use the shared pool instead.
+     * @see #getInstance()
+     */
+    public IconPool() {
+    }
+
+    /**
+     * Get the pool that is shared by all menus.
+     * @return the shared pool
+     */
+    public static IconPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the icon for the ItemStack. If an equal ItemStack was interned before and its icon is still in use, then that icon is returned
+     * and the stack is not copied. Otherwise, a new icon is created from a clone of the stack.
+     *
+     * @param stack the ItemStack
+     * @return the canonical icon, or null if the stack is null
+     */
+    public Icon intern(ItemStack stack) {
+        if (stack == null) return null;
+        expungeStaleIcons();
+
+        Key lookupKey = new Key(stack);
+        IconReference reference = icons.get(lookupKey);
+        Icon icon = reference == null ? null : reference.get();
+        if (icon != null) {
+            share(reference);
+            return icon;
+        }
+
+        misses.increment();
+        Icon newIcon = Icon.of(stack);
+        Key ownedKey = new Key(Icon.unwrap(newIcon), lookupKey.hash);
+        IconReference newReference = new IconReference(newIcon, ownedKey, collectedIcons);
+        for (;;) {
+            IconReference existing = icons.putIfAbsent(ownedKey, newReference);
+            if (existing == null) return newIcon;
+
+            //another thread interned an equal stack in the meantime, or the previous icon was garbage collected.
+            Icon existingIcon = existing.get();
+            if (existingIcon != null) {
+                share(existing);
+                return existingIcon;
+            }
+            if (icons.replace(ownedKey, existing, newReference)) return newIcon;
+        }
+    }
+
+    private void share(IconReference reference) {
+        hits.increment();
+        reference.savedCopies.incrementAndGet();
+        savedCopies.increment();
+    }
+
+    /**
+     * Get the number of icons in this pool that are still in use.
+     * @return the number of pooled icons
+     */
+    public int size() {
+        expungeStaleIcons();
+        return icons.size();
+    }
+
+    /**
+     * Get the number of times an existing icon was returned, which is the number of ItemStack copies that this pool saved.
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of times a new icon had to be created.
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the memory that this pool saves right now, as the number of ItemStack copies (each with its own ItemMeta) that are not in memory
+     * because the icons that are still in use are shared. Unlike {@link #getHits()}, this number goes down again when icons are no longer used.
+     * It is an upper bound: an icon counts as shared by everyone who interned it, until the icon itself is no longer used by anyone.
+     * @return the number of saved copies
+     */
+    public long getSavedCopies() {
+        expungeStaleIcons();
+        return savedCopies.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "IconPool(size=" + size() + ",hits=" + getHits() + ",misses=" + getMisses() + ",savedCopies=" + getSavedCopies() + ")";
+    }
+
+    private void expungeStaleIcons() {
+        Object reference;
+        while ((reference = collectedIcons.poll()) != null) {
+            IconReference iconReference = (IconReference) reference;
+            icons.remove(iconReference.key, iconReference);
+            savedCopies.add(-iconReference.savedCopies.get());
+        }
+    }
+
+    //ItemStack#hashCode is computed once per key. ItemStack#equals compares the type, amount and meta.
+    private static final class Key {
+        private final ItemStack stack;
+        private final int hash;
+
+        private Key(ItemStack stack) {
+            this(stack, stack.hashCode());
+        }
+
+        private Key(ItemStack stack, int hash) {
+            this.stack = stack;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key that = (Key) o;
+            return this.hash == that.hash && Objects.equals(this.stack, that.stack);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class IconReference extends WeakReference<Icon> {
+        private final Key key;
+        private final AtomicInteger savedCopies = new AtomicInteger(); //the number of times this icon was shared.
+
+        private IconReference(Icon icon, Key key, ReferenceQueue<Icon> queue) {
+            super(icon, queue);
+            this.key = key;
+        }
+    }
+}
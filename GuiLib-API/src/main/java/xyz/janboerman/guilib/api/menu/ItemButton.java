@@ -2,38 +2,104 @@ package xyz.janboerman.guilib.api.menu;
 
 import org.bukkit.inventory.ItemStack;
 
-import java.util.HashSet;
-import java.util.Set;
 import java.util.WeakHashMap;
 
 /**
  * A button with an icon.
+ * <p>
+ * By default, an ItemButton remembers the menus and slots it was added to, so that {@link #setIcon(ItemStack)} can update them.
+ * Buttons of which the icon never changes can be created as flyweights instead, see {@link #flyweight(ItemStack)}.
+ * A flyweight button does not remember anything about the menus it is added to, so one instance can be shared by any number of menus.
  *
  * @param <MH> the type of the menu
  */
 public class ItemButton<MH extends MenuHolder<?>> implements MenuButton<MH> {
 
+    //Whether a class and its superclasses up to ItemButton are part of this library. Those never mutate the stack field,
+    //so it can hold the pooled stack. Subclasses from other libraries get a copy, so that they can't corrupt the pool.
+    private static final ClassValue<Boolean> LIBRARY_CLASS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> buttonClass) {
+            for (Class<?> c = buttonClass; c != ItemButton.class; c = c.getSuperclass()) {
+                if (c.getModule() != ItemButton.class.getModule() || !c.getPackageName().equals(ItemButton.class.getPackageName())) return false;
+            }
+            return true;
+        }
+    };
+
     /**
      * The representation of this button.
      * Buttons that wish to update their inventories should use {@link #setIcon(ItemStack)} instead.
+     * Subclasses get their own copy of the icon in this field; the icon that is written to inventories is shared with other buttons (see {@link IconPool}).
+     * If a subclass assigns a different stack to this field, that stack becomes the icon of this button.
      */
     protected ItemStack stack;
+    private ItemStack exposedStack; //the stack that this class assigned to the stack field.
+    private Icon iconHandle;
 
-    private final WeakHashMap<MH, Set<Integer>> inventoriesContainingMe = new WeakHashMap<>();
+    //the slots per menu, as a bitset: bit i of word i / 64 is set if this button is in slot i. null for flyweight buttons.
+    private final WeakHashMap<MH, long[]> inventoriesContainingMe;
 
     /**
      * Creates an ItemButton without an icon.
      */
     protected ItemButton() {
+        this.inventoriesContainingMe = new WeakHashMap<>();
     }
 
     /**
      * Creates the ItemButton with the given ItemStack.
-     * The button uses a clone of the ItemStack.
+     * The button uses a copy of the ItemStack, which is shared with other buttons with an equal icon, see {@link IconPool}.
      * @param stack the icon
      */
     public ItemButton(ItemStack stack) {
-        this.stack = stack == null ? null : stack.clone();
+        this(stack, false);
+    }
+
+    /**
+     * Creates the ItemButton with the given ItemStack, optionally as a flyweight.
+     * The button uses a copy of the ItemStack, which is shared with other buttons with an equal icon, see {@link IconPool}.
+     * @param stack the icon
+     * @param flyweight true if the icon of this button never changes, such that the button does not need to remember the menus it is added to
+     * @see #flyweight(ItemStack)
+     */
+    protected ItemButton(ItemStack stack, boolean flyweight) {
+        this.inventoriesContainingMe = flyweight ? null : new WeakHashMap<>();
+        useIcon(IconPool.getInstance().intern(stack));
+    }
+
+    private void useIcon(Icon icon) {
+        this.iconHandle = icon;
+        ItemStack pooledStack = Icon.unwrap(icon);
+        this.stack = this.exposedStack = pooledStack == null || LIBRARY_CLASS.get(getClass()) ? pooledStack : pooledStack.clone();
+    }
+
+    /**
+     * Creates a flyweight ItemButton: a button of which the icon never changes.
+     * Such a button can be shared by any number of menus, without taking up memory per menu. Useful for fillers and decorations.
+     * @param icon the icon
+     * @param <MH> the type of the menu
+     * @return a new flyweight button
+     */
+    public static <MH extends MenuHolder<?>> ItemButton<MH> flyweight(ItemStack icon) {
+        return new ItemButton<>(icon, true);
+    }
+
+    /**
+     * Tests whether this button is a flyweight. The icon of a flyweight button cannot be changed.
+     * @return true if this button is a flyweight, otherwise false
+     */
+    public final boolean isFlyweight() {
+        return inventoriesContainingMe == null;
+    }
+
+    /**
+     * Creates the ItemButton with the given icon. The icon is not cloned.
+     * @param icon the icon
+     */
+    public ItemButton(Icon icon) {
+        this.inventoriesContainingMe = new WeakHashMap<>();
+        useIcon(icon);
     }
 
     /**
@@ -42,21 +108,50 @@ public class ItemButton<MH extends MenuHolder<?>> implements MenuButton<MH> {
      */
     @Override
     public final ItemStack getIcon() {
-        return stack == null ? null : stack.clone();
+        Icon icon = getIconHandle();
+        return icon == null ? null : icon.toItemStack();
+    }
+
+    /**
+     * Gets the icon without cloning it.
+     * @return the icon handle, or null if there is no icon
+     */
+    @Override
+    public final Icon getIconHandle() {
+        ItemStack stack = this.stack;
+        if (stack != exposedStack) {
+            //a subclass assigned the stack field.
+            exposedStack = stack;
+            iconHandle = Icon.wrap(stack);
+        }
+        return iconHandle;
     }
 
     /**
      * Set the icon stack. Menus that contain this button will have their inventories update accordingly.
+     * Menus that are being viewed write the icon to their inventories once per tick, see {@link MenuHolder#updateIcon(int)}.
      * @param icon the icon
+     * @throws UnsupportedOperationException if this button is a flyweight
      */
     public final void setIcon(ItemStack icon) {
-        stack = icon == null ? null : icon.clone();
-        inventoriesContainingMe.forEach((menuHolder, slots) -> slots.forEach(slot -> menuHolder.getInventory().setItem(slot, stack)));
+        if (isFlyweight()) throw new UnsupportedOperationException("Cannot change the icon of a flyweight button");
+        useIcon(IconPool.getInstance().intern(icon));
+        inventoriesContainingMe.forEach(MenuHolder::updateIcons);
+    }
+
+    /**
+     * Tests whether copies of a menu can share this button. Only flyweight buttons can be shared,
+     * because {@link #setIcon(ItemStack)} changes the icon in every menu that contains the button.
+     * @return true if this button is a flyweight, otherwise false
+     */
+    @Override
+    public boolean isShareable() {
+        return isFlyweight();
     }
 
     /**
      * Called when this button is added to the menu.
-     * The ItemButton maintains a cache of menus that it is contained in.
+     * The ItemButton maintains a cache of menus that it is contained in, unless it is a flyweight.
      * When the icon is updated though {@link #setIcon(ItemStack)}, it updates the item stack in those inventories.
      *
      * @param menuHolder the menu
@@ -65,7 +160,13 @@ public class ItemButton<MH extends MenuHolder<?>> implements MenuButton<MH> {
      */
     @Override
     public final boolean onAdd(MH menuHolder, int slot) {
-        return inventoriesContainingMe.computeIfAbsent(menuHolder, mh -> new HashSet<>()).add(slot);
+        if (isFlyweight()) return true;
+        long[] slots = inventoriesContainingMe.computeIfAbsent(menuHolder, mh -> new long[(mh.getInventory().getSize() + 63) >>> 6]);
+        int word = slot >>> 6;
+        long bit = 1L << slot;
+        if ((slots[word] & bit) != 0L) return false;
+        slots[word] |= bit;
+        return true;
     }
 
     /**
@@ -77,12 +178,23 @@ public class ItemButton<MH extends MenuHolder<?>> implements MenuButton<MH> {
      */
     @Override
     public final boolean onRemove(MH menuHolder, int slot) {
-        Set<Integer> slots = inventoriesContainingMe.get(menuHolder);
+        if (isFlyweight()) return true;
+        long[] slots = inventoriesContainingMe.get(menuHolder);
         if (slots != null) {
-            boolean result = slots.remove(slot);
-            if (slots.isEmpty()) inventoriesContainingMe.remove(menuHolder);
+            int word = slot >>> 6;
+            long bit = 1L << slot;
+            boolean result = (slots[word] & bit) != 0L;
+            slots[word] &= ~bit;
+            if (isEmpty(slots)) inventoriesContainingMe.remove(menuHolder);
             return result;
         }
         return true;
     }
+
+    private static boolean isEmpty(long[] slots) {
+        for (long word : slots) {
+            if (word != 0L) return false;
+        }
+        return true;
+    }
 }
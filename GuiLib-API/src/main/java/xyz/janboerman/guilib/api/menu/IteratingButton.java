@@ -73,7 +73,7 @@ public class IteratingButton<T, MH extends MenuHolder<?>> extends ItemButton<MH>
         boolean toggleSuccess = tryToggle(holder, event);
         if (toggleSuccess) {
             setIcon(updateIcon(holder, event));
-            event.setCurrentItem(getIcon());
+            event.setCurrentItem(Icon.unwrap(getIconHandle())); //the inventory copies the stack.
         }
     }
 
@@ -0,0 +1,247 @@
+package xyz.janboerman.guilib.api.menu;
+
+import org.bukkit.Material;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import xyz.janboerman.guilib.api.GuiListener;
+import xyz.janboerman.guilib.api.ItemBuilder;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A menu that pages over the elements of a list. The top rows of the inventory show the elements of the current page,
+ * the bottom row contains the previous-page and next-page buttons.
+ * <p>
+ * Buttons are only created for the elements on the page that is shown, by the {@link SlotRenderer} of this menu.
+ * When the page changes, the same inventory is re-rendered in place, so changing pages costs time proportional to the size of a page,
+ * regardless of the size of the list. For this to hold, the list should support fast random access, like an {@link java.util.ArrayList}.
+ * <p>
+ * The list is not copied. If the list is changed while the menu is open, call {@link #refresh()} to show the changes.
+ * <p>
+ * To page over very many entries, page over the {@linkplain IconCatalog#indices() indices} of an {@link IconCatalog},
+ * using the renderer that is created by {@link IconCatalog#slotRenderer(java.util.function.ObjIntConsumer)}.
+ *
+ * @param <P> your plugin type
+ * @param <T> the type of the elements of the list
+ */
+public class ListMenu<P extends Plugin, T> extends MenuHolder<P> {
+
+    private static final ItemStack DEFAULT_PREVIOUS_PAGE_BUTTON = new ItemBuilder(Material.MAGENTA_GLAZED_TERRACOTTA).name("Previous").build();
+    private static final ItemStack DEFAULT_NEXT_PAGE_BUTTON = new ItemBuilder(Material.MAGENTA_GLAZED_TERRACOTTA).name("Next").build();
+
+    private final List<? extends T> elements;
+    private final SlotRenderer<? super T> renderer;
+    private final int pageSize;
+    private final MenuButton<?> previousPageButton, nextPageButton;
+    private int page;
+
+    /**
+     * Creates a list menu.
+     * @param plugin your plugin
+     * @param size the size of the inventory - a multiple of 9, from 18 to 54
+     * @param title the title of the inventory
+     * @param elements the list of elements
+     * @param renderer the renderer that creates the buttons for the elements
+     * @throws IllegalArgumentException if the size is not a multiple of 9, or if it is below 18 or above 54
+     */
+    public ListMenu(P plugin, int size, String title, List<? extends T> elements, SlotRenderer<? super T> renderer) {
+        this(GuiListener.getInstance(), plugin, size, title, elements, renderer);
+    }
+
+    /**
+     * Creates a list menu.
+     * @param guiListener the listener that calls the onOpen, onClick and onClose methods
+     * @param plugin your plugin
+     * @param size the size of the inventory - a multiple of 9, from 18 to 54
+     * @param title the title of the inventory
+     * @param elements the list of elements
+     * @param renderer the renderer that creates the buttons for the elements
+     * @throws IllegalArgumentException if the size is not a multiple of 9, or if it is below 18 or above 54
+     */
+    public ListMenu(GuiListener guiListener, P plugin, int size, String title, List<? extends T> elements, SlotRenderer<? super T> renderer) {
+        this(guiListener, plugin, size, title, elements, renderer, DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
+    }
+
+    /**
+     * Creates a list menu.
+     * @param guiListener the listener that calls the onOpen, onClick and onClose methods
+     * @param plugin your plugin
+     * @param size the size of the inventory - a multiple of 9, from 18 to 54
+     * @param title the title of the inventory
+     * @param elements the list of elements
+     * @param renderer the renderer that creates the buttons for the elements
+     * @param previousPageButton the ItemStack used for the previous-page button
+     * @param nextPageButton the ItemStack used for the next-page button
+     * @throws IllegalArgumentException if the size is not a multiple of 9, or if it is below 18 or above 54
+     */
+    public ListMenu(GuiListener guiListener, P plugin, int size, String title, List<? extends T> elements, SlotRenderer<? super T> renderer,
+                    ItemStack previousPageButton, ItemStack nextPageButton) {
+        super(guiListener, plugin, checkSize(size), title);
+        this.elements = Objects.requireNonNull(elements, "Elements cannot be null");
+        this.renderer = Objects.requireNonNull(renderer, "Renderer cannot be null");
+        this.pageSize = size - 9;
+        this.previousPageButton = new ItemButton<ListMenu<?, ?>>(Objects.requireNonNull(previousPageButton, "Previous page button cannot be null"), true) {
+            @Override
+            public void onClick(ListMenu<?, ?> menu, InventoryClickEvent event) {
+                menu.turnPage(menu.getPage() - 1);
+            }
+        };
+        this.nextPageButton = new ItemButton<ListMenu<?, ?>>(Objects.requireNonNull(nextPageButton, "Next page button cannot be null"), true) {
+            @Override
+            public void onClick(ListMenu<?, ?> menu, InventoryClickEvent event) {
+                menu.turnPage(menu.getPage() + 1);
+            }
+        };
+
+        render();
+    }
+
+    /**
+     * Creates a copy of a list menu, which shows the same page of the same list.
+     * The list is not copied: the copy pages over the same list as the prototype.
+     * The copy renders its own buttons for the elements in {@link #addCopiedButtons()}.
+     * @param prototype the list menu to copy
+     * @see MenuHolder#MenuHolder(MenuHolder)
+     */
+    protected ListMenu(ListMenu<P, T> prototype) {
+        super(prototype);
+        this.elements = prototype.elements;
+        this.renderer = prototype.renderer;
+        this.pageSize = prototype.pageSize;
+        this.previousPageButton = prototype.previousPageButton;
+        this.nextPageButton = prototype.nextPageButton;
+        this.page = prototype.page;
+    }
+
+    /**
+     * Creates a copy of this list menu.
+     * Subclasses must override this method using their copy constructor, and call {@link #addCopiedButtons()} on the copy.
+     * @return the copy
+     * @throws UnsupportedOperationException if this is an instance of a subclass that does not override this method
+     * @see #ListMenu(ListMenu)
+     */
+    @Override
+    public ListMenu<P, T> copy() {
+        if (getClass() != ListMenu.class) throw new UnsupportedOperationException(getClass().getName() + " does not override copy()");
+        ListMenu<P, T> copy = new ListMenu<>(this);
+        copy.addCopiedButtons();
+        return copy;
+    }
+
+    /**
+     * Adds the shared buttons to this copy, and renders the buttons for the elements on the current page,
+     * because the buttons that the renderer creates are not necessarily shareable.
+     */
+    @Override
+    protected void addCopiedButtons() {
+        super.addCopiedButtons();
+        render();
+    }
+
+    private static int checkSize(int size) {
+        if (size % 9 != 0 || size < 18 || size > 54) throw new IllegalArgumentException("Size must be a multiple of 9 from 18 to 54, got: " + size);
+        return size;
+    }
+
+    /**
+     * Get the list of elements that this menu pages over.
+     * @return the list
+     */
+    public List<? extends T> getElements() {
+        return elements;
+    }
+
+    /**
+     * Get the number of elements per page.
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Get the index of the page that is shown.
+     * @return the page index
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * Get the number of pages. An empty list still has one (empty) page.
+     * @return the number of pages
+     */
+    public int getPageCount() {
+        return Math.max(1, (elements.size() + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * Shows a page. Only the buttons for the elements on that page are created.
+     * @param page the index of the page
+     * @throws IndexOutOfBoundsException if the page index is negative or not smaller than the page count
+     */
+    public void setPage(int page) {
+        Objects.checkIndex(page, getPageCount());
+        this.page = page;
+        render();
+    }
+
+    //the list can shrink between rendering the previous-page and next-page buttons and clicking them, so the page is clamped like in refresh().
+    private void turnPage(int page) {
+        this.page = Math.max(0, Math.min(page, getPageCount() - 1));
+        render();
+    }
+
+    /**
+     * Shows the current page again, for example after the list was changed.
+     * If the list shrunk such that the current page no longer exists, the last page is shown instead.
+     */
+    public void refresh() {
+        page = Math.min(page, getPageCount() - 1);
+        render();
+    }
+
+    /**
+     * Get the index in the list of the element that is shown in a slot.
+     * @param slot the slot in the inventory
+     * @return the index of the element, or -1 if the slot does not show an element
+     */
+    public int getElementIndex(int slot) {
+        if (slot < 0 || slot >= pageSize) return -1;
+        int index = page * pageSize + slot;
+        return index < elements.size() ? index : -1;
+    }
+
+    private void render() {
+        int size = elements.size();
+        int from = page * pageSize;
+
+        Batch batch = batch();
+        for (int slot = 0; slot < pageSize; slot++) {
+            int index = from + slot;
+            batch.setButton(slot, index < size ? renderer.render(elements.get(index), index) : null);
+        }
+        batch.setButton(pageSize + 2, page > 0 ? previousPageButton : null);
+        batch.setButton(pageSize + 6, page + 1 < getPageCount() ? nextPageButton : null);
+        batch.commit();
+    }
+
+    /**
+     * Creates the buttons for the elements of a {@link ListMenu}.
+     * @param <T> the type of the elements
+     */
+    @FunctionalInterface
+    public static interface SlotRenderer<T> {
+
+        /**
+         * Creates the button for an element.
+         * @param element the element
+         * @param index the index of the element in the list
+         * @return the button, or null to leave the slot empty
+         */
+        public MenuButton<?> render(T element, int index);
+
+    }
+}
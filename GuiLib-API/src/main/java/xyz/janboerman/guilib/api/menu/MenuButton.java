@@ -31,6 +31,30 @@ public interface MenuButton<MH extends MenuHolder<?>> {
         return null;
     }
 
+    /**
+     * The icon of the button, as an immutable handle. Menus use this method to write the icon into their inventories.
+     * <p>
+     * The default implementation wraps the result of {@link #getIcon()}.
+     * Buttons that keep their icon in a field should override this method such that the icon is not cloned.
+     *
+     * @return the icon handle, or null if the button has no icon
+     */
+    public default Icon getIconHandle() {
+        return Icon.wrap(getIcon());
+    }
+
+    /**
+     * Tests whether copies of a menu can share this button, see {@link MenuHolder#MenuHolder(MenuHolder)}.
+     * A button can be shared if clicking it in one menu does not change how it looks or behaves in the other menus.
+     * <p>
+     * The default implementation returns true. Buttons that keep state should override this method.
+     *
+     * @return whether this button can be shared by copies of a menu
+     */
+    public default boolean isShareable() {
+        return true;
+    }
+
     /**
      * Called when the button is added to the menu.
      *
@@ -1,16 +1,24 @@
 package xyz.janboerman.guilib.api.menu;
 
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 import xyz.janboerman.guilib.api.GuiListener;
 import xyz.janboerman.guilib.api.GuiInventoryHolder;
+import xyz.janboerman.guilib.util.Overrides;
+import xyz.janboerman.guilib.util.Scheduler;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
 
 /**
  * A GuiInventoryHolder that only responds to clicks in the top inventory of the {@link InventoryView}.
@@ -29,14 +37,59 @@ import java.util.function.BiConsumer;
  * @see TeleportButton
  * @see ChatButton
  * @see ClaimButton
+ * @see AsyncButton
  */
 public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implements Iterable<MenuButton<?>> {
 
     private final MenuButton<?>[] buttons;
     private int buttonCount = 0;
+    //bit i is set if and only if buttons[i] != null, so that iteration can skip empty slots.
+    private final long[] occupiedSlots = new long[(getInventory().getSize() + 63) >>> 6];
+    private SortedMap<Integer, MenuButton<?>> buttonsView;
+
+    private static final ButtonFactory[] NO_FACTORIES = new ButtonFactory[0];
+    //lazy slots only hold an icon in the inventory, and the id of the factory that creates their button when it is needed.
+    private ButtonFactory[] buttonFactories = NO_FACTORIES;
+    private boolean[] cacheFactoryButtons = new boolean[0];
+    private short[] lazyFactoryIds;     //factory id + 1 per slot, 0 for slots that are not lazy. allocated when the first lazy slot is set.
+    private final long[] lazySlots = new long[(getInventory().getSize() + 63) >>> 6];
+
+    private static final WeakReference<?>[] NO_CALLBACKS = new WeakReference<?>[0];
+    //copy-on-write arrays: callbacks can be added or removed while the arrays are being iterated, and iterating them does not allocate.
+    private WeakReference<ButtonAddCallback>[] addButtonCallbacks = noCallbacks();
+    private WeakReference<ButtonRemoveCallback>[] removeButtonCallbacks = noCallbacks();
+    private WeakReference<ButtonChangeListener>[] buttonChangeListeners = noCallbacks();
+    //references to callbacks that were garbage collected are enqueued here, so that we only scan the arrays when a callback was collected.
+    private final ReferenceQueue<Object> collectedCallbacks = new ReferenceQueue<>();
+    //slots that changed since the change listeners were last notified.
+    private final long[] pendingChanges = new long[(getInventory().getSize() + 63) >>> 6];
+    private boolean changeFeedScheduled;
+    //whether this is a copy of which the shared buttons were not notified yet, see addCopiedButtons().
+    private boolean copiedButtonsPending;
+
+    //Whether a class overrides setButton or unsetButton. Batches of such menus apply their changes through those methods. Computed once per class.
+    private static final ClassValue<Boolean> OVERRIDES_SLOT_HOOKS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> menuClass) {
+            return Overrides.overrides(menuClass, MenuHolder.class, "setButton", int.class, MenuButton.class)
+                    || Overrides.overrides(menuClass, MenuHolder.class, "unsetButton", int.class);
+        }
+    };
+
+    //Whether a class overrides getButton or getButtonOptionally. Clicks in menus of such classes look up their buttons through those methods.
+    private static final ClassValue<Boolean> OVERRIDES_BUTTON_LOOKUP = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> menuClass) {
+            return Overrides.overrides(menuClass, MenuHolder.class, "getButton", int.class)
+                    || Overrides.overrides(menuClass, MenuHolder.class, "getButtonOptionally", int.class);
+        }
+    };
 
-    private final LinkedList<WeakReference<ButtonAddCallback>> addButtonCallbacks = new LinkedList<>();
-    private final LinkedList<WeakReference<ButtonRemoveCallback>> removeButtonCallbacks = new LinkedList<>();
+    private static final LongAdder totalAvoidedIconWrites = new LongAdder();
+    //slots of which the icon changed while the menu was being viewed. their icons are written to the inventory once per tick.
+    private final long[] dirtySlots = new long[(getInventory().getSize() + 63) >>> 6];
+    private boolean iconFlushScheduled;
+    private long avoidedIconWrites;
 
     /**
      * Creates the MenuHolder with the given InventoryType and title.
@@ -149,19 +202,149 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
         this.buttons = new MenuButton<?>[getInventory().getSize()];
     }
 
+    /**
+     * Creates a copy of a MenuHolder. The copy gets a new inventory, into which the contents of the prototype's inventory are copied in bulk.
+     * The buttons of the prototype that are {@linkplain MenuButton#isShareable() shareable} are shared with the copy, so they are not re-created.
+     * Buttons that are not shareable are left out of the copy. Callbacks and listeners that were registered on the prototype are not copied.
+     * <p>
+     * The shared buttons are notified through {@link MenuButton#onAdd(MenuHolder, int)} once the copy is fully constructed, by {@link #addCopiedButtons()}.
+     * Subclasses that are used as prototypes should provide a copy constructor as well, and override {@link #copy()} such that it calls
+     * {@link #addCopiedButtons()} on the new copy. Copies of plain MenuHolders can be created with this constructor directly.
+     *
+     * @param prototype the menu to copy
+     * @throws IllegalArgumentException if the prototype was constructed with a custom inventory,
+     * or if the prototype is a plain MenuHolder that contains a button that is not shareable
+     * @see xyz.janboerman.guilib.api.GuiInventoryHolder#GuiInventoryHolder(GuiInventoryHolder)
+     */
+    public MenuHolder(MenuHolder<P> prototype) {
+        super(prototype);
+
+        MenuButton<?>[] prototypeButtons = prototype.buttons;
+        this.buttons = new MenuButton<?>[prototypeButtons.length];
+        System.arraycopy(prototypeButtons, 0, this.buttons, 0, prototypeButtons.length);
+        System.arraycopy(prototype.occupiedSlots, 0, this.occupiedSlots, 0, occupiedSlots.length);
+        this.buttonCount = prototype.buttonCount;
+        this.buttonFactories = prototype.buttonFactories.clone();
+        this.cacheFactoryButtons = prototype.cacheFactoryButtons.clone();
+        if (prototype.lazyFactoryIds != null) {
+            this.lazyFactoryIds = prototype.lazyFactoryIds.clone();
+            System.arraycopy(prototype.lazySlots, 0, this.lazySlots, 0, lazySlots.length);
+        }
+
+        Inventory inventory = getInventory();
+        //icons that the prototype did not write yet.
+        long[] prototypeDirtySlots = prototype.dirtySlots;
+        for (int word = 0; word < prototypeDirtySlots.length; word++) {
+            if (prototypeDirtySlots[word] != 0L) writeIcons(inventory, word, prototypeDirtySlots[word]);
+        }
+
+        boolean plainMenu = getClass() == MenuHolder.class;
+        for (int word = 0; word < occupiedSlots.length; word++) {
+            for (long bits = occupiedSlots[word]; bits != 0L; bits &= bits - 1) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                MenuButton<?> button = buttons[slot];
+                if (!button.isShareable()) {
+                    //nobody would add a button of its own to a plain menu.
+                    if (plainMenu) throw new IllegalArgumentException("The button in slot " + slot + " cannot be shared by copies: " + button);
+                    removeCopiedButton(inventory, slot);
+                }
+            }
+        }
+
+        copiedButtonsPending = true;
+        //a plain menu is fully constructed now. subclasses are completed by their copy() method.
+        if (plainMenu) addCopiedButtons();
+    }
+
+    /**
+     * Notifies the buttons that this copy shares with its prototype that they were added to this copy, see {@link MenuButton#onAdd(MenuHolder, int)}.
+     * Buttons that refuse to be in the copy are removed from it. This method does nothing if this menu is not a copy, or if it was called already.
+     * <p>
+     * Overrides of {@link #copy()} call this method on the new copy, once its copy constructor has returned. Subclasses of which some buttons are not
+     * shareable can override this method to add their own instances of those buttons, after calling {@code super.addCopiedButtons()}.
+     *
+     * @see #MenuHolder(MenuHolder)
+     */
+    protected void addCopiedButtons() {
+        if (!copiedButtonsPending) return;
+        copiedButtonsPending = false;
+
+        Inventory inventory = getInventory();
+        for (int word = 0; word < occupiedSlots.length; word++) {
+            for (long bits = occupiedSlots[word]; bits != 0L; bits &= bits - 1) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                MenuButton button = buttons[slot];
+                if (!button.onAdd(this, slot)) {
+                    //the button refuses to be in the copy.
+                    removeCopiedButton(inventory, slot);
+                }
+            }
+        }
+    }
+
+    private void removeCopiedButton(Inventory inventory, int slot) {
+        buttons[slot] = null;
+        occupiedSlots[slot >>> 6] &= ~(1L << slot);
+        inventory.setItem(slot, null);
+        buttonCount -= 1;
+    }
+
+    /**
+     * Creates a copy of this menu, for example to give every player their own instance of a menu that is expensive to build.
+     * The copy costs one bulk copy of the buttons and the inventory contents, instead of a rebuild.
+     * Buttons that are not {@linkplain MenuButton#isShareable() shareable} are not copied, because clicking them in one copy would change the others.
+     * <p>
+     * Copying is opt-in: subclasses that support it override this method using their copy constructor, which calls {@link #MenuHolder(MenuHolder)},
+     * then call {@link #addCopiedButtons()} on the copy, and make this method public with their own return type,
+     * like {@link ListMenu#copy()} and {@link YesNoMenu#copy()} do.
+     *
+     * @return the copy
+     * @throws UnsupportedOperationException if this is an instance of a subclass that does not override this method
+     * @throws IllegalArgumentException if this menu was constructed with a custom inventory, or if it contains a button that is not shareable
+     */
+    protected MenuHolder<P> copy() {
+        if (getClass() != MenuHolder.class) throw new UnsupportedOperationException(getClass().getName() + " does not override copy()");
+        return new MenuHolder<>(this);
+    }
+
     /**
      * Called by the framework. Delegates the event to a registered button on the slot, if one is present.
+     * If a subclass overrides {@link #getButton(int)} or {@link #getButtonOptionally(int)}, the button is looked up through those methods.
      * <p>
      * Subclasses that override this method should always call {@code super.onClick(event);}.
      * @param event the inventory click event
      */
     @Override
     public void onClick(InventoryClickEvent event) {
-        //only use the buttons when the top inventory was clicked.
-        Inventory clickedInventory = getClickedInventory(event);
-        if (clickedInventory == null) return;
+        if (OVERRIDES_BUTTON_LOOKUP.get(getClass())) {
+            //a subclass decides which button is in which slot.
+            if (getClickedInventory(event) == null) return;
+            getButtonOptionally(event.getRawSlot()).ifPresent((MenuButton button) -> button.onClick(this, event));
+            return;
+        }
 
-        getButtonOptionally(event.getRawSlot()).ifPresent((MenuButton button) -> button.onClick(this, event));
+        //only use the buttons when the top inventory was clicked. raw slots of the top inventory come first, clicks outside the window are negative.
+        //this is the hot path of every menu, so look up the button directly instead of through getClickedInventory and getButtonOptionally.
+        int rawSlot = event.getRawSlot();
+        if (rawSlot < 0 || rawSlot >= buttons.length) return;
+
+        MenuButton button = buttons[rawSlot];
+        if (button == null) {
+            if ((lazySlots[rawSlot >>> 6] & (1L << rawSlot)) == 0L) return;
+            button = materializeButton(rawSlot);
+            if (button == null) return;
+            if (buttons[rawSlot] != button) {
+                //the button was not cached, so it is only in this menu for the duration of the click.
+                if (!button.onAdd(this, rawSlot)) return;
+                try {
+                    button.onClick(this, event);
+                } finally {
+                    button.onRemove(this, rawSlot);
+                }
+                return;
+            }
+        }
+        button.onClick(this, event);
     }
 
     /**
@@ -178,21 +361,20 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
 
         MenuButton rawButton = (MenuButton) button;
 
-        var iterator = addButtonCallbacks.iterator();
-        while (iterator.hasNext()) {
-            var nextReference = iterator.next();
-            var nextCallback = nextReference.get();
-            if (nextCallback == null) {
-                iterator.remove(); //if a callback was garbage collected, remove it from our list
-            } else {
-                if (!nextCallback.onAdd(slot, button)) return false;
-            }
+        expungeStaleCallbacks();
+        for (var reference : addButtonCallbacks) {
+            var callback = reference.get();
+            //a callback that was garbage collected after we expunged is skipped, it will be expunged next time.
+            if (callback != null && !callback.onAdd(slot, button)) return false;
         }
 
         if (rawButton.onAdd(this, slot)) {
-            getInventory().setItem(slot, button.getIcon());
+            getInventory().setItem(slot, Icon.iconStack(button));
+            clearDirty(slot);
             this.buttons[slot] = button;
+            occupiedSlots[slot >>> 6] |= 1L << slot;
             buttonCount += 1;
+            markChanged(slot);
             return true;
         } else {
             return false;
@@ -201,13 +383,109 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
 
     /**
      * Gets the button at the given slot.
+     * <p>
+     * If the slot is {@linkplain #isLazyButton(int) lazy}, its button is created by the factory of the slot. If the factory caches its buttons,
+     * the button is then added to the slot: the {@link ButtonAddCallback}s and the button itself are notified, and the slot is reported to the
+     * {@link ButtonChangeListener}s. This may happen while the buttons of this menu are iterated: iteration continues with the slot after the current one,
+     * so the new button is only visited if its slot was not passed yet. If the factory does not cache its buttons, a new button is returned
+     * that is not added to this menu.
+     *
      * @param slot the slot index
      * @return a button if one is present at the given slot, otherwise null
      */
     public MenuButton<?> getButton(int slot) {
         if (slot < 0 || slot >= buttons.length) return null;
 
-        return this.buttons[slot];
+        MenuButton<?> button = this.buttons[slot];
+        if (button == null && (lazySlots[slot >>> 6] & (1L << slot)) != 0L) button = materializeButton(slot);
+        return button;
+    }
+
+    /**
+     * Registers a factory that creates the buttons of lazy slots.
+     *
+     * @param factory the factory
+     * @param cacheButtons true if the button that the factory creates for a slot should be kept in the slot,
+     *                     false if the factory should create a new button every time the button of the slot is needed.
+     *                     A button that is not kept is only added to the menu while it handles a click, and the icon of its slot stays
+     *                     the icon that was passed to {@link #setLazyButton(int, Icon, int)}.
+     * @return the id of the factory, to be used with {@link #setLazyButton(int, Icon, int)}
+     * @throws IllegalStateException if too many factories were registered
+     */
+    public int addButtonFactory(ButtonFactory factory, boolean cacheButtons) {
+        Objects.requireNonNull(factory, "Button factory cannot be null");
+        int id = buttonFactories.length;
+        if (id == Short.MAX_VALUE) throw new IllegalStateException("Too many button factories");
+
+        buttonFactories = Arrays.copyOf(buttonFactories, id + 1);
+        buttonFactories[id] = factory;
+        cacheFactoryButtons = Arrays.copyOf(cacheFactoryButtons, id + 1);
+        cacheFactoryButtons[id] = cacheButtons;
+        return id;
+    }
+
+    /**
+     * Sets a lazy slot: the icon is put in the inventory, but the button is only created by the factory when it is needed,
+     * which is when the slot is clicked or when {@link #getButton(int)} is called.
+     * Menus with many buttons that are rarely clicked use much less memory this way.
+     * <p>
+     * Lazy slots are not covered by {@link #iterator()}, {@link #forEach(BiConsumer)} and {@link #getButtons()} until their buttons are cached.
+     * The {@link ButtonAddCallback}s are not invoked when a lazy slot is set, but when its button is created and cached.
+     *
+     * @param slot the slot number
+     * @param icon the icon, which should be equal to the icon of the button that the factory creates
+     * @param factoryId the id of the factory, as returned by {@link #addButtonFactory(ButtonFactory, boolean)}
+     * @return true if the slot was set, false if the button in the slot could not be removed
+     */
+    public boolean setLazyButton(int slot, Icon icon, int factoryId) {
+        Objects.checkIndex(slot, buttons.length);
+        Objects.checkIndex(factoryId, buttonFactories.length);
+        if (!unsetButton(slot)) return false;
+
+        if (lazyFactoryIds == null) lazyFactoryIds = new short[buttons.length];
+        lazyFactoryIds[slot] = (short) (factoryId + 1);
+        lazySlots[slot >>> 6] |= 1L << slot;
+        getInventory().setItem(slot, Icon.unwrap(icon));
+        clearDirty(slot);
+        markChanged(slot);
+        return true;
+    }
+
+    /**
+     * Tests whether the slot is lazy: it has an icon, but its button was not created yet.
+     * @param slot the slot number
+     * @return true if the slot is lazy, otherwise false
+     */
+    public boolean isLazyButton(int slot) {
+        return slot >= 0 && slot < buttons.length && (lazySlots[slot >>> 6] & (1L << slot)) != 0L;
+    }
+
+    //creates the button of a lazy slot. if the factory caches its buttons, the button is added to the slot like setButton does, except that the icon stays.
+    //if the button can't be added, the slot stays lazy and the button is returned anyway, like the buttons of factories that don't cache.
+    private MenuButton<?> materializeButton(int slot) {
+        int factoryId = lazyFactoryIds[slot] - 1;
+        MenuButton button = buttonFactories[factoryId].createButton(this, slot);
+        if (button == null || !cacheFactoryButtons[factoryId]) return button;
+
+        expungeStaleCallbacks();
+        for (var reference : addButtonCallbacks) {
+            var callback = reference.get();
+            if (callback != null && !callback.onAdd(slot, button)) return button;
+        }
+
+        if (button.onAdd(this, slot)) {
+            clearLazy(slot);
+            buttons[slot] = button;
+            occupiedSlots[slot >>> 6] |= 1L << slot;
+            buttonCount += 1;
+            markChanged(slot);
+        }
+        return button;
+    }
+
+    private void clearLazy(int slot) {
+        lazySlots[slot >>> 6] &= ~(1L << slot);
+        lazyFactoryIds[slot] = 0;
     }
 
     /**
@@ -220,16 +498,41 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
     }
 
     /**
-     * Get a snapshot of all registered buttons. If no buttons are registered an empty map is returned.
-     * @return a new SortedMap containing the buttons
+     * Get a view of all registered buttons, keyed by slot. If no buttons are registered the view is empty.
+     * The view is backed by this menu, so buttons that are set or unset later are reflected in the view.
+     * @return an unmodifiable live SortedMap containing the buttons
+     * @apiNote Use {@code new TreeMap<>(getButtons())} to take a snapshot.
      */
     public SortedMap<Integer, MenuButton<?>> getButtons() {
-        var map = new TreeMap<Integer, MenuButton<?>>();
-        for (int i = 0; i < this.buttons.length; i++) {
-            MenuButton button = this.buttons[i];
-            if (button != null) map.put(i, button);
+        SortedMap<Integer, MenuButton<?>> view = buttonsView;
+        if (view == null) buttonsView = view = new ButtonsView(0, buttons.length);
+        return view;
+    }
+
+    //the first slot >= from that contains a button, or -1 if there is no such slot.
+    private int nextButtonSlot(int from) {
+        if (from >= buttons.length) return -1;
+
+        int word = from >>> 6;
+        long bits = occupiedSlots[word] & (-1L << from);
+        while (bits == 0L) {
+            if (++word == occupiedSlots.length) return -1;
+            bits = occupiedSlots[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    //the last slot <= from that contains a button, or -1 if there is no such slot.
+    private int previousButtonSlot(int from) {
+        if (from < 0) return -1;
+
+        int word = from >>> 6;
+        long bits = occupiedSlots[word] & (-1L >>> (63 - (from & 63)));
+        while (bits == 0L) {
+            if (--word < 0) return -1;
+            bits = occupiedSlots[word];
         }
-        return map;
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
     }
 
     /**
@@ -241,36 +544,344 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
      */
     public boolean unsetButton(int slot) {
         MenuButton menuButton = this.buttons[slot];
-        if (menuButton == null) return true;
-
-        var iterator = removeButtonCallbacks.iterator();
-        while (iterator.hasNext()) {
-            var nextReference = iterator.next();
-            var nextCallback = nextReference.get();
-            if (nextCallback == null) {
-                iterator.remove(); //if a callback was garbage collected, remove it from our list
-            } else {
-                if (!nextCallback.onRemove(slot, menuButton)) return false;
+        if (menuButton == null) {
+            if ((lazySlots[slot >>> 6] & (1L << slot)) != 0L) {
+                clearLazy(slot);
+                getInventory().setItem(slot, null);
+                clearDirty(slot);
+                markChanged(slot);
             }
+            return true;
+        }
+
+        expungeStaleCallbacks();
+        for (var reference : removeButtonCallbacks) {
+            var callback = reference.get();
+            //a callback that was garbage collected after we expunged is skipped, it will be expunged next time.
+            if (callback != null && !callback.onRemove(slot, menuButton)) return false;
         }
 
         if (menuButton.onRemove(this, slot)) {
             this.buttons[slot] = null;
+            occupiedSlots[slot >>> 6] &= ~(1L << slot);
             getInventory().setItem(slot, null);
+            clearDirty(slot);
             buttonCount -= 1;
+            markChanged(slot);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Writes the icon of the button in the slot to the inventory of this menu.
+     * This method is called by buttons of which the icon changed, such as {@link ItemButton#setIcon(ItemStack)}.
+     * <p>
+     * While the menu is being viewed, writes are coalesced: the slot is marked as dirty, and the icon that the button has at the end of the tick
+     * is written to the inventory only once. Otherwise, the icon is written immediately.
+     * The latest icon can always be obtained from the button itself.
+     *
+     * @param slot the slot number
+     * @see #flushIcons()
+     */
+    public void updateIcon(int slot) {
+        updateIcons(slot >>> 6, 1L << slot);
+    }
+
+    //like updateIcon, for all slots in the bitset. used by ItemButton#setIcon.
+    void updateIcons(long[] slots) {
+        for (int word = 0; word < slots.length; word++) {
+            if (slots[word] != 0L) updateIcons(word, slots[word]);
+        }
+    }
+
+    private void updateIcons(int word, long bits) {
+        Inventory inventory = getInventory();
+        List<HumanEntity> viewers = inventory.getViewers();
+        if (viewers.isEmpty()) {
+            //nobody sees intermediate icons, and if the last viewer is gone there might not be a tick in which a scheduled flush runs.
+            if (iconFlushScheduled) flushIcons();
+            writeIcons(inventory, word, bits);
+            markChanged(word, bits);
+            return;
+        }
+
+        markChanged(word, bits);
+        long alreadyDirty = dirtySlots[word] & bits;
+        if (alreadyDirty != 0L) {
+            int avoided = Long.bitCount(alreadyDirty);
+            avoidedIconWrites += avoided;
+            totalAvoidedIconWrites.add(avoided);
+        }
+
+        dirtySlots[word] |= bits;
+        if (!iconFlushScheduled) scheduleIconFlush(viewers);
+    }
+
+    //flushes on the thread of a viewer. if the viewer is removed before the flush runs (on Folia), the flush is rescheduled.
+    private void scheduleIconFlush(List<HumanEntity> viewers) {
+        if (viewers.isEmpty()) {
+            flushIcons();
+            return;
+        }
+
+        iconFlushScheduled = true;
+        if (Scheduler.get().runTaskLater(getPlugin(), viewers.get(0), this::flushIcons, this::rescheduleIconFlush) == null) {
+            //the viewer was removed already.
+            flushIcons();
+        }
+    }
+
+    private void rescheduleIconFlush() {
+        iconFlushScheduled = false;
+        scheduleIconFlush(getInventory().getViewers());
+    }
+
+    /**
+     * Writes the icons of the slots that are marked as dirty to the inventory of this menu.
+     * This method is called once per tick when icons were updated while the menu was being viewed.
+     *
+     * @see #updateIcon(int)
+     */
+    public void flushIcons() {
+        iconFlushScheduled = false;
+
+        Inventory inventory = getInventory();
+        for (int word = 0; word < dirtySlots.length; word++) {
+            long bits = dirtySlots[word];
+            if (bits != 0L) {
+                dirtySlots[word] = 0L;
+                writeIcons(inventory, word, bits);
+            }
+        }
+    }
+
+    private void writeIcon(Inventory inventory, int slot) {
+        MenuButton<?> button = buttons[slot];
+        inventory.setItem(slot, button == null ? null : Icon.iconStack(button));
+    }
+
+    //writes the icons of multiple slots, one setItem call per slot. setContents is not cheaper: CraftInventory copies every slot in both
+    //getContents and setContents, so that costs two copies of the whole inventory regardless of the number of slots that changed.
+    private void writeIcons(Inventory inventory, int word, long bits) {
+        bits &= ~lazySlots[word]; //the inventory is the only place where the icons of lazy slots are kept.
+        for (; bits != 0L; bits &= bits - 1) {
+            writeIcon(inventory, (word << 6) + Long.numberOfTrailingZeros(bits));
+        }
+    }
+
+    private void clearDirty(int slot) {
+        dirtySlots[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /**
+     * Get the number of icon writes to the inventory of this menu that were avoided because they were coalesced with a later write in the same tick.
+     * @return the number of avoided writes
+     */
+    public long getAvoidedIconWrites() {
+        return avoidedIconWrites;
+    }
+
+    /**
+     * Get the number of icon writes that were avoided by all menus, because they were coalesced with a later write in the same tick.
+     * @return the total number of avoided writes
+     */
+    public static long getTotalAvoidedIconWrites() {
+        return totalAvoidedIconWrites.sum();
+    }
+
     /**
      * Removes all buttons from the menu.
      * Subclasses that override this method must either call {@link MenuButton#onRemove(MenuHolder, int)} when a button is removed, or call super.unsetButton(slot).
+     * The buttons are removed in a single {@linkplain #batch() batch}, which calls {@link #unsetButton(int)} per slot if a subclass overrides it.
      */
     public void clearButtons() {
-        for (int i = 0; i < this.buttons.length; i++) {
-            unsetButton(i);
+        batch().clearButtons().commit();
+    }
+
+    /**
+     * Start a batch of button changes. Changes are collected by the batch, and are only applied to this menu when the batch is {@linkplain Batch#commit() committed}.
+     * <p>
+     * This is more efficient than calling {@link #setButton(int, MenuButton)} and {@link #unsetButton(int)} for many slots:
+     * the callbacks of this menu are walked once per batch rather than once per slot, the icon of a slot is written to the inventory only once,
+     * and the {@link ButtonChangeListener}s are notified of all changed slots at once.
+     * <p>
+     * If the class of this menu overrides {@link #setButton(int, MenuButton)} or {@link #unsetButton(int)}, the batch applies its changes
+     * by calling those methods for every changed slot instead, so that subclasses keep seeing every change. Such menus do not benefit from batching.
+     *
+     * @return a new batch
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * A batch of button changes in a {@link MenuHolder}.
+     * <p>
+     * When the batch is committed, all removals are processed before all additions: first the {@link ButtonRemoveCallback}s may veto removals,
+     * then the removed buttons are notified, then the {@link ButtonAddCallback}s may veto additions, and finally the added buttons are notified.
+     * Just like with {@link #setButton(int, MenuButton)}, a button is not added to a slot if the button that occupied the slot could not be removed.
+     *
+     * @see #batch()
+     */
+    public final class Batch {
+
+        private final MenuButton<?>[] newButtons = new MenuButton<?>[buttons.length];
+        private final long[] changedSlots = new long[(buttons.length + 63) >>> 6];
+
+        private Batch() {}
+
+        /**
+         * Set a button on a slot when this batch is committed. Replaces earlier changes to the same slot in this batch.
+         * @param slot the slot number
+         * @param button the button, or null to remove the button from the slot
+         * @return this batch
+         * @throws IndexOutOfBoundsException if the slot is not a slot of the menu
+         */
+        public Batch setButton(int slot, MenuButton<?> button) {
+            Objects.checkIndex(slot, buttons.length);
+            newButtons[slot] = button;
+            changedSlots[slot >>> 6] |= 1L << slot;
+            return this;
+        }
+
+        /**
+         * Remove the button from a slot when this batch is committed. Replaces earlier changes to the same slot in this batch.
+         * @param slot the slot number
+         * @return this batch
+         * @throws IndexOutOfBoundsException if the slot is not a slot of the menu
+         */
+        public Batch unsetButton(int slot) {
+            return setButton(slot, null);
+        }
+
+        /**
+         * Remove all buttons from the menu when this batch is committed. Replaces all earlier changes in this batch.
+         * @return this batch
+         */
+        public Batch clearButtons() {
+            Arrays.fill(newButtons, null);
+            Arrays.fill(changedSlots, 0L);
+            for (int word = 0; word < changedSlots.length; word++) {
+                changedSlots[word] = occupiedSlots[word] | lazySlots[word];
+            }
+            return this;
+        }
+
+        /**
+         * Applies the changes of this batch to the menu. Afterwards, the batch is empty and can be reused.
+         * @return the number of buttons that were removed plus the number of buttons that were added
+         */
+        public int commit() {
+            if (OVERRIDES_SLOT_HOOKS.get(MenuHolder.this.getClass())) return commitPerSlot();
+
+            expungeStaleCallbacks();
+
+            //removals
+            for (var reference : removeButtonCallbacks) {
+                var callback = reference.get();
+                if (callback == null) continue;
+                for (int word = 0; word < changedSlots.length; word++) {
+                    for (long bits = changedSlots[word]; bits != 0L; bits &= bits - 1) {
+                        int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        MenuButton<?> oldButton = buttons[slot];
+                        if (oldButton != null && !callback.onRemove(slot, oldButton)) changedSlots[word] &= ~(1L << slot); //vetoed
+                    }
+                }
+            }
+
+            int changedCount = 0;
+
+            for (int word = 0; word < changedSlots.length; word++) {
+                for (long bits = changedSlots[word]; bits != 0L; bits &= bits - 1) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    MenuButton oldButton = buttons[slot];
+                    if (oldButton == null) {
+                        if ((lazySlots[word] & (1L << slot)) != 0L) {
+                            clearLazy(slot);
+                            changedCount += 1;
+                        }
+                        continue;
+                    }
+
+                    if (oldButton.onRemove(MenuHolder.this, slot)) {
+                        buttons[slot] = null;
+                        occupiedSlots[word] &= ~(1L << slot);
+                        buttonCount -= 1;
+                        changedCount += 1;
+                    } else {
+                        changedSlots[word] &= ~(1L << slot); //the old button stays, so the new button can't be added.
+                    }
+                }
+            }
+
+            //additions
+            for (var reference : addButtonCallbacks) {
+                var callback = reference.get();
+                if (callback == null) continue;
+                for (int word = 0; word < changedSlots.length; word++) {
+                    for (long bits = changedSlots[word]; bits != 0L; bits &= bits - 1) {
+                        int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        MenuButton<?> newButton = newButtons[slot];
+                        if (newButton != null && !callback.onAdd(slot, newButton)) newButtons[slot] = null; //vetoed
+                    }
+                }
+            }
+
+            for (int word = 0; word < changedSlots.length; word++) {
+                for (long bits = changedSlots[word]; bits != 0L; bits &= bits - 1) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    MenuButton newButton = newButtons[slot];
+                    if (newButton == null) continue;
+
+                    if (newButton.onAdd(MenuHolder.this, slot)) {
+                        buttons[slot] = newButton;
+                        occupiedSlots[word] |= 1L << slot;
+                        buttonCount += 1;
+                        changedCount += 1;
+                    }
+                }
+            }
+
+            if (changedCount > 0) {
+                Inventory inventory = getInventory();
+                for (int word = 0; word < changedSlots.length; word++) {
+                    writeIcons(inventory, word, changedSlots[word]);
+                    dirtySlots[word] &= ~changedSlots[word];
+                    markChanged(word, changedSlots[word]);
+                }
+            }
+
+            Arrays.fill(newButtons, null);
+            Arrays.fill(changedSlots, 0L);
+            return changedCount;
+        }
+
+        //applies the changes through the overridden setButton and unsetButton methods of the menu.
+        private int commitPerSlot() {
+            int changedCount = 0;
+            for (int word = 0; word < changedSlots.length; word++) {
+                for (long bits = changedSlots[word]; bits != 0L; bits &= bits - 1) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    MenuButton<?> oldButton = buttons[slot];
+                    boolean wasLazy = (lazySlots[word] & (1L << slot)) != 0L;
+                    MenuButton<?> newButton = newButtons[slot];
+
+                    if (newButton == null) {
+                        unsetButton(slot);
+                    } else {
+                        setButton(slot, newButton);
+                    }
+
+                    if ((oldButton != null || wasLazy) && buttons[slot] != oldButton) changedCount += 1;
+                    if (newButton != null && buttons[slot] == newButton) changedCount += 1;
+                }
+            }
+
+            Arrays.fill(newButtons, null);
+            Arrays.fill(changedSlots, 0L);
+            return changedCount;
         }
     }
 
@@ -290,24 +901,23 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
             private void advanceTillNextButton() {
                 if (cursor == -1) cursor = 0;
 
-                while (lastFound < cursor && cursor < buttons.length) {
-                    if (buttons[cursor] != null) {
-                        lastFound = cursor;
-                        break;
+                if (lastFound < cursor && cursor < buttons.length) {
+                    int slot = nextButtonSlot(cursor);
+                    if (slot == -1) {
+                        cursor = buttons.length;
+                    } else {
+                        cursor = lastFound = slot;
                     }
-                    cursor += 1;
                 }
             }
 
             private void advanceTillPreviousButton() {
                 if (cursor == buttons.length) cursor -= 1;
 
-                while (cursor >= 0) {
-                    if (buttons[cursor] != null) {
-                        lastFound = cursor;
-                        break;
-                    }
-                    cursor -= 1;
+                if (cursor >= 0) {
+                    int slot = previousButtonSlot(cursor);
+                    if (slot != -1) lastFound = slot;
+                    cursor = slot;
                 }
             }
 
@@ -397,56 +1007,330 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
      * @param action the action
      */
     public void forEach(BiConsumer<Integer, ? super MenuButton<?>> action) {
-        for (int i = 0; i < buttons.length; i++) {
-            MenuButton<?> button = buttons[i];
-            if (button != null) action.accept(i, button);
+        //look up the next slot after every action, so that changes made by the action are respected.
+        for (int slot = nextButtonSlot(0); slot != -1; slot = nextButtonSlot(slot + 1)) {
+            action.accept(slot, buttons[slot]);
+        }
+    }
+
+    //unmodifiable view of the buttons in the slots [fromSlot, toSlot), backed by the buttons array and the occupancy bitset.
+    private final class ButtonsView extends AbstractMap<Integer, MenuButton<?>> implements SortedMap<Integer, MenuButton<?>> {
+        private final int fromSlot, toSlot;
+        private Set<Map.Entry<Integer, MenuButton<?>>> entrySet;
+
+        private ButtonsView(int fromSlot, int toSlot) {
+            this.fromSlot = fromSlot;
+            this.toSlot = toSlot;
+        }
+
+        private boolean inRange(Object key) {
+            if (!(key instanceof Integer)) return false;
+            int slot = (Integer) key;
+            return fromSlot <= slot && slot < toSlot;
+        }
+
+        private int nextInRange(int from) {
+            int slot = nextButtonSlot(from);
+            return slot < toSlot ? slot : -1;
+        }
+
+        private int previousInRange(int from) {
+            int slot = previousButtonSlot(from);
+            return slot >= fromSlot ? slot : -1;
+        }
+
+        @Override
+        public MenuButton<?> get(Object key) {
+            return inRange(key) ? buttons[(Integer) key] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            if (fromSlot == 0 && toSlot == buttons.length) return buttonCount;
+
+            int size = 0;
+            for (int slot = nextInRange(fromSlot); slot != -1; slot = nextInRange(slot + 1)) size += 1;
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return nextInRange(fromSlot) == -1;
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, MenuButton<?>>> entrySet() {
+            Set<Map.Entry<Integer, MenuButton<?>>> entries = entrySet;
+            if (entries == null) {
+                entrySet = entries = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Map.Entry<Integer, MenuButton<?>>> iterator() {
+                        return new Iterator<>() {
+                            int nextSlot = nextInRange(fromSlot);
+
+                            @Override
+                            public boolean hasNext() {
+                                return nextSlot != -1;
+                            }
+
+                            @Override
+                            public Map.Entry<Integer, MenuButton<?>> next() {
+                                if (nextSlot == -1) throw new NoSuchElementException();
+                                int slot = nextSlot;
+                                nextSlot = nextInRange(slot + 1);
+                                return new AbstractMap.SimpleImmutableEntry<>(slot, buttons[slot]);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return ButtonsView.this.size();
+                    }
+                };
+            }
+            return entries;
+        }
+
+        @Override
+        public Comparator<? super Integer> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<Integer, MenuButton<?>> subMap(Integer fromKey, Integer toKey) {
+            if (fromKey > toKey) throw new IllegalArgumentException("fromKey > toKey");
+            int from = Math.min(toSlot, Math.max(fromSlot, fromKey));
+            return new ButtonsView(from, Math.max(from, Math.min(toSlot, toKey)));
+        }
+
+        @Override
+        public SortedMap<Integer, MenuButton<?>> headMap(Integer toKey) {
+            return new ButtonsView(fromSlot, Math.max(fromSlot, Math.min(toSlot, toKey)));
+        }
+
+        @Override
+        public SortedMap<Integer, MenuButton<?>> tailMap(Integer fromKey) {
+            return new ButtonsView(Math.min(toSlot, Math.max(fromSlot, fromKey)), toSlot);
+        }
+
+        @Override
+        public Integer firstKey() {
+            int slot = nextInRange(fromSlot);
+            if (slot == -1) throw new NoSuchElementException();
+            return slot;
+        }
+
+        @Override
+        public Integer lastKey() {
+            int slot = toSlot == 0 ? -1 : previousInRange(toSlot - 1);
+            if (slot == -1) throw new NoSuchElementException();
+            return slot;
         }
     }
 
     /**
      * Add a callback that is invoked when a button is added to this menu.
+     * Adding a callback that was added already has no effect.
      *
      * @param buttonAddListener the callback
      * @see #removeButtonAddCallback(ButtonAddCallback)
      */
     public void addButtonAddCallback(ButtonAddCallback buttonAddListener) {
         if (buttonAddListener == null) return;
-        addButtonCallbacks.add(new WeakReference<>(buttonAddListener));
+        expungeStaleCallbacks();
+        addButtonCallbacks = withCallback(addButtonCallbacks, buttonAddListener);
     }
 
     /**
      * Add a callback that is invoked when a button is removed from this menu.
+     * Adding a callback that was added already has no effect.
      *
      * @param buttonRemoveListener the callback
      * @see #removeButtonRemoveCallback(ButtonRemoveCallback)
      */
     public void addButtonRemoveCallback(ButtonRemoveCallback buttonRemoveListener) {
         if (buttonRemoveListener == null) return;
-        removeButtonCallbacks.add(new WeakReference<>(buttonRemoveListener));
+        expungeStaleCallbacks();
+        removeButtonCallbacks = withCallback(removeButtonCallbacks, buttonRemoveListener);
+    }
+
+    /**
+     * Add a listener that is notified of the slots that changed in this menu, at most once per tick.
+     * Listeners are notified on the thread of a player who views this menu or - if the listener is an {@link InventoryHolder} - the inventory of the listener.
+     * If there is no such player, listeners are notified on the next tick, on the main thread (or the global region thread on Folia).
+     * Adding a listener that was added already has no effect.
+     *
+     * @param buttonChangeListener the listener
+     * @see #removeButtonChangeListener(ButtonChangeListener)
+     * @see #flushButtonChanges()
+     */
+    public void addButtonChangeListener(ButtonChangeListener buttonChangeListener) {
+        if (buttonChangeListener == null) return;
+        expungeStaleCallbacks();
+        buttonChangeListeners = withCallback(buttonChangeListeners, buttonChangeListener);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <C> WeakReference<C>[] noCallbacks() {
+        return (WeakReference<C>[]) NO_CALLBACKS;
+    }
+
+    private <C> WeakReference<C>[] withCallback(WeakReference<C>[] references, C callback) {
+        for (WeakReference<C> reference : references) {
+            if (reference.get() == callback) return references;
+        }
+        WeakReference<C>[] result = Arrays.copyOf(references, references.length + 1);
+        result[references.length] = new WeakReference<>(callback, collectedCallbacks);
+        return result;
+    }
+
+    //removes the references to the callback, as well as the references to callbacks that were garbage collected.
+    private static <C> WeakReference<C>[] withoutCallback(WeakReference<C>[] references, C callback) {
+        int keptCount = 0;
+        WeakReference<C>[] kept = null;
+        for (int i = 0; i < references.length; i++) {
+            WeakReference<C> reference = references[i];
+            C referent = reference.get();
+            if (referent != null && referent != callback) {
+                if (kept != null) kept[keptCount] = reference;
+                keptCount += 1;
+            } else if (kept == null) {
+                kept = Arrays.copyOf(references, references.length);
+                keptCount = i;
+            }
+        }
+        if (kept == null) return references;
+        return keptCount == 0 ? noCallbacks() : Arrays.copyOf(kept, keptCount);
+    }
+
+    //removes the references to callbacks that were garbage collected from the callback arrays.
+    private void expungeStaleCallbacks() {
+        if (collectedCallbacks.poll() == null) return;
+        while (collectedCallbacks.poll() != null);
+
+        //withoutCallback drops every cleared reference, including the ones that were not enqueued yet.
+        addButtonCallbacks = withoutCallback(addButtonCallbacks, null);
+        removeButtonCallbacks = withoutCallback(removeButtonCallbacks, null);
+        buttonChangeListeners = withoutCallback(buttonChangeListeners, null);
     }
 
     /**
      * Remove a callback that is (no longer) invoked when a button is added to this menu.
+     * Callbacks are compared by identity.
      *
      * @param buttonAddListener the callback
      */
     public void removeButtonAddCallback(ButtonAddCallback buttonAddListener) {
         Objects.requireNonNull(buttonAddListener, "Button-Add callback cannot be null");
-        //need to use removeIf since WeakReference doesn't override equals.
-        //this doesn't matter though as the remove operation of LinkedList is O(n) anyway.
-        addButtonCallbacks.removeIf(ref -> buttonAddListener.equals(ref.get()));
+        addButtonCallbacks = withoutCallback(addButtonCallbacks, buttonAddListener);
     }
 
     /**
      * Remove a callback that is (no longer) invoked when a button is removed from this menu.
+     * Callbacks are compared by identity.
      *
      * @param buttonRemoveListener the callback
      */
     public void removeButtonRemoveCallback(ButtonRemoveCallback buttonRemoveListener) {
         Objects.requireNonNull(buttonRemoveListener, "Button-Remove callback cannot be null");
-        //need to use removeIf since WeakReference doesn't override equals.
-        //this doesn't matter though as the remove operation of LinkedList is O(n) anyway.
-        removeButtonCallbacks.removeIf(ref -> buttonRemoveListener.equals(ref.get()));
+        removeButtonCallbacks = withoutCallback(removeButtonCallbacks, buttonRemoveListener);
+    }
+
+    /**
+     * Remove a listener that is (no longer) notified of the slots that changed in this menu.
+     * Listeners are compared by identity.
+     *
+     * @param buttonChangeListener the listener
+     */
+    public void removeButtonChangeListener(ButtonChangeListener buttonChangeListener) {
+        Objects.requireNonNull(buttonChangeListener, "Button-Change listener cannot be null");
+        buttonChangeListeners = withoutCallback(buttonChangeListeners, buttonChangeListener);
+    }
+
+    private void markChanged(int slot) {
+        markChanged(slot >>> 6, 1L << slot);
+    }
+
+    private void markChanged(int word, long bits) {
+        if (buttonChangeListeners.length == 0 || bits == 0L) return;
+
+        pendingChanges[word] |= bits;
+        if (!changeFeedScheduled) scheduleButtonChanges();
+    }
+
+    //notifies the listeners on the thread of someone who sees the changes: a viewer of this menu, or a viewer of the inventory of a listener
+    //(such as the PageMenu that renders this menu as its page). if nobody sees the changes, the listeners are notified on the next tick,
+    //so that a menu that is filled before anyone opens it notifies its listeners once, and not from within setButton.
+    private void scheduleButtonChanges() {
+        changeFeedScheduled = true;
+
+        HumanEntity viewer = findChangeViewer();
+        if (viewer == null) {
+            Scheduler.get().runTaskLater(getPlugin(), this::flushButtonChanges);
+        } else if (Scheduler.get().runTaskLater(getPlugin(), viewer, this::flushButtonChanges, this::rescheduleButtonChanges) == null) {
+            //the viewer was removed already.
+            Scheduler.get().runTaskLater(getPlugin(), this::flushButtonChanges);
+        }
+    }
+
+    private void rescheduleButtonChanges() {
+        changeFeedScheduled = false;
+        scheduleButtonChanges();
+    }
+
+    private HumanEntity findChangeViewer() {
+        List<HumanEntity> viewers = getInventory().getViewers();
+        if (!viewers.isEmpty()) return viewers.get(0);
+
+        for (var reference : buttonChangeListeners) {
+            var listener = reference.get();
+            if (listener instanceof InventoryHolder) {
+                Inventory listenerInventory = ((InventoryHolder) listener).getInventory();
+                if (listenerInventory != null) {
+                    List<HumanEntity> listenerViewers = listenerInventory.getViewers();
+                    if (!listenerViewers.isEmpty()) return listenerViewers.get(0);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Notifies the {@link ButtonChangeListener}s of the slots that changed since they were last notified.
+     * This method is called once per tick when slots changed, but can be called earlier if the listeners need to be up-to-date immediately.
+     *
+     * @see #addButtonChangeListener(ButtonChangeListener)
+     */
+    public void flushButtonChanges() {
+        changeFeedScheduled = false;
+
+        boolean changed = false;
+        for (long word : pendingChanges) {
+            if (word != 0L) {
+                changed = true;
+                break;
+            }
+        }
+        if (!changed) return;
+
+        //the listeners should see the final icons.
+        if (iconFlushScheduled) flushIcons();
+
+        ButtonChanges changes = new ButtonChanges(this, pendingChanges.clone());
+        Arrays.fill(pendingChanges, 0L);
+
+        expungeStaleCallbacks();
+        for (var reference : buttonChangeListeners) {
+            var listener = reference.get();
+            if (listener != null) listener.onButtonsChanged(changes);
+        }
     }
 
     /**
@@ -470,4 +1354,98 @@ public class MenuHolder<P extends Plugin> extends GuiInventoryHolder<P> implemen
         public boolean onRemove(int slot, MenuButton<?> button);
 
     }
+
+    /**
+     * A listener that - when registered - is notified of all slots of a menu that changed in a tick, in a single call.
+     * Slots change when buttons are set or unset, and when the icons of buttons are updated.
+     * Unlike the {@link ButtonAddCallback} and the {@link ButtonRemoveCallback}, this listener cannot veto changes.
+     * @see #addButtonChangeListener(ButtonChangeListener)
+     */
+    @FunctionalInterface
+    public static interface ButtonChangeListener {
+
+        public void onButtonsChanged(ButtonChanges changes);
+
+    }
+
+    /**
+     * Creates the buttons of lazy slots.
+     * @see #addButtonFactory(ButtonFactory, boolean)
+     * @see #setLazyButton(int, Icon, int)
+     */
+    @FunctionalInterface
+    public static interface ButtonFactory {
+
+        /**
+         * Creates the button for a lazy slot.
+         * @param menu the menu
+         * @param slot the slot number
+         * @return the button, or null if the slot should not respond to clicks
+         */
+        public MenuButton<?> createButton(MenuHolder<?> menu, int slot);
+
+    }
+
+    /**
+     * The slots of a menu that changed since its {@link ButtonChangeListener}s were last notified.
+     * The buttons and icons in these slots can be obtained from the menu itself, which is up-to-date when the listeners are notified.
+     */
+    public static final class ButtonChanges {
+
+        private final MenuHolder<?> menu;
+        private final long[] changedSlots;
+
+        private ButtonChanges(MenuHolder<?> menu, long[] changedSlots) {
+            this.menu = menu;
+            this.changedSlots = changedSlots;
+        }
+
+        /**
+         * Get the menu in which the slots changed.
+         * @return the menu
+         */
+        public MenuHolder<?> getMenu() {
+            return menu;
+        }
+
+        /**
+         * Tests whether a slot changed.
+         * @param slot the slot number
+         * @return true if the slot changed, otherwise false
+         */
+        public boolean isChanged(int slot) {
+            return slot >= 0 && (slot >>> 6) < changedSlots.length && (changedSlots[slot >>> 6] & (1L << slot)) != 0L;
+        }
+
+        /**
+         * Get the number of slots that changed.
+         * @return the number of changed slots
+         */
+        public int getChangedSlotCount() {
+            int count = 0;
+            for (long word : changedSlots) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * Performs an action for every slot that changed, in ascending order.
+         * @param action the action
+         */
+        public void forEachChangedSlot(IntConsumer action) {
+            for (int word = 0; word < changedSlots.length; word++) {
+                for (long bits = changedSlots[word]; bits != 0L; bits &= bits - 1) {
+                    action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner slots = new StringJoiner(",", "[", "]");
+            forEachChangedSlot(slot -> slots.add(Integer.toString(slot)));
+            return "ButtonChanges(menu=" + menu + ",slots=" + slots + ")";
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package xyz.janboerman.guilib.api.menu;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import xyz.janboerman.guilib.api.GuiInventoryHolder;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Creates the pages of a {@link PageMenu} by index, and keeps the pages that were used most recently.
+ * The previous-page and next-page suppliers of the pages look up their targets in this cache by index, so that pages don't retain each other.
+ * <p>
+ * Pages that a player is viewing are never evicted, so that a player who comes back to such a page gets the same menu.
+ * While more than {@code cacheSize} pages are being viewed, the cache holds more than {@code cacheSize} pages.
+ * Whether a page is viewed is checked when a page is added; on Folia, viewers in other regions may open or close pages concurrently,
+ * in which case a page that was opened during the check can still be evicted.
+ */
+class PageCache<P extends Plugin> {
+
+    private final P plugin;
+    private final String title;
+    private final int pageCount;
+    private final PageMenu.PageSource source;
+    private final int cacheSize;
+    private final ItemStack previousPageButton, nextPageButton;
+    private final PageMenu.JumpControls jumpControls;
+    private final LinkedHashMap<Integer, PageMenu<P>> cache = new LinkedHashMap<>(16, 0.75F, true);
+
+    PageCache(P plugin, String title, int pageCount, PageMenu.PageSource source, int cacheSize, ItemStack previousPageButton, ItemStack nextPageButton,
+              PageMenu.JumpControls jumpControls) {
+        this.plugin = plugin;
+        this.title = title;
+        this.pageCount = pageCount;
+        this.source = source;
+        this.cacheSize = cacheSize;
+        this.previousPageButton = previousPageButton;
+        this.nextPageButton = nextPageButton;
+        this.jumpControls = jumpControls;
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+    PageMenu.JumpControls getJumpControls() {
+        return jumpControls;
+    }
+
+    synchronized PageMenu<P> get(int index) {
+        Objects.checkIndex(index, pageCount);
+
+        PageMenu<P> pageMenu = cache.get(index);
+        if (pageMenu == null) {
+            pageMenu = create(index);
+            cache.put(index, pageMenu);
+            evict(pageMenu);
+        }
+        return pageMenu;
+    }
+
+    //a menu that shows the page at the index: the cached menu, unless that menu is rendering another page in place for its viewers.
+    //then the page is shown in a new menu, which is not cached. must be called on the thread of the player who is going to open the menu.
+    synchronized PageMenu<P> getRendering(int index) {
+        PageMenu<P> pageMenu = get(index);
+        if (pageMenu.getRenderedPage() == pageMenu) return pageMenu;
+        if (pageMenu.getInventory().getViewers().isEmpty()) {
+            pageMenu.renderOwnPage();
+            return pageMenu;
+        }
+        return create(index, pageMenu.getOwnedPage());
+    }
+
+    //evicts the least recently used pages that nobody is viewing, until the cache fits. the page that was just added is kept.
+    private void evict(PageMenu<P> added) {
+        Iterator<PageMenu<P>> pages = cache.values().iterator();
+        while (cache.size() > cacheSize && pages.hasNext()) {
+            PageMenu<P> page = pages.next();
+            if (page != added && !page.isViewed()) pages.remove();
+        }
+    }
+
+    private PageMenu<P> create(int index) {
+        return create(index, Objects.requireNonNull(source.getPage(index), "Source returned null for page " + index));
+    }
+
+    private PageMenu<P> create(int index, GuiInventoryHolder<?> page) {
+        Supplier<PageMenu<P>> previous = index > 0 ? () -> get(index - 1) : null;
+        Supplier<PageMenu<P>> next = index + 1 < pageCount ? () -> get(index + 1) : null;
+
+        PageMenu<P> pageMenu = title == null
+                ? new PageMenu<>(plugin, page, previous, next, previousPageButton, nextPageButton)
+                : new PageMenu<>(plugin, page, title, previous, next, previousPageButton, nextPageButton);
+        pageMenu.pageCache = this;
+        pageMenu.pageIndex = index;
+        return pageMenu;
+    }
+}
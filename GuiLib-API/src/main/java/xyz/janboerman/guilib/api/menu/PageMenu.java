@@ -15,6 +15,7 @@ import xyz.janboerman.guilib.util.CachedSupplier;
 import xyz.janboerman.guilib.util.Scheduler;
 
 import java.util.*;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -24,10 +25,11 @@ import java.util.stream.Collectors;
  * @param <P> your plugin type
  * @see ResetButton
  */
-public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHolder.ButtonAddCallback, MenuHolder.ButtonRemoveCallback {
+public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHolder.ButtonAddCallback, MenuHolder.ButtonRemoveCallback, MenuHolder.ButtonChangeListener {
 
     private static final ItemStack DEFAULT_PREVIOUS_PAGE_BUTTON = new ItemBuilder(Material.MAGENTA_GLAZED_TERRACOTTA).name("Previous").build();
     private static final ItemStack DEFAULT_NEXT_PAGE_BUTTON = new ItemBuilder(Material.MAGENTA_GLAZED_TERRACOTTA).name("Next").build();
+    private static final int PAGE_PICKER_SIZE = 54;
 
     private final String title;
 
@@ -35,17 +37,23 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
     private final GuiInventoryHolder myPage;
     /** Positions of the previous and next buttons in our inventory */
     protected final int previousButtonIndex, nextButtonIndex;
-    /** ItemStacks used for the previous-page and next-page buttons */
+    /** ItemStacks used for the previous-page and next-page buttons, as passed to the constructor. The buttons show pooled copies of these stacks. */
     protected final ItemStack previousPageButton, nextPageButton;
+    /** The pooled icons of the previous-page and next-page buttons. Referenced strongly, so that all pages keep sharing them. */
+    private final Icon previousPageIcon, nextPageIcon;
     /** The suppliers that supply the previous-page and next-page menus */
     private Supplier<PageMenu<P>> previousPageSupplier, nextPageSupplier;
 
 
     private PageMenu<P> renderedPage = this, hostingPage = this;
-    private ItemStack renderedNextStack, renderedPreviousStack;
+    private Icon renderedNextIcon, renderedPreviousIcon;
     private int renderedNextIndex, renderedPreviousIndex;
 
 
+    /** The cache that created this menu and its index in the cache, or null and -1 if this menu was not created from a {@link PageSource}. Set by {@link PageCache}. */
+    PageCache<P> pageCache;
+    int pageIndex = -1;
+
     /** hack to initialize the buttons when the inventory is opened for the first time */
     private boolean weHaveBeenOpened;
 
@@ -58,7 +66,7 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @throws IllegalArgumentException if the page size is below 9 or above 45
      */
     public PageMenu(P plugin, GuiInventoryHolder page, Supplier<PageMenu<P>> previous, Supplier<PageMenu<P>> next) throws IllegalArgumentException {
-        this(plugin, page, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON.clone(), DEFAULT_NEXT_PAGE_BUTTON.clone());
+        this(plugin, page, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
     }
 
     /**
@@ -71,7 +79,7 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @throws IllegalArgumentException if the page size is below 9 or above 45
      */
     public PageMenu(GuiListener guiListener, P plugin, GuiInventoryHolder page, Supplier<PageMenu<P>> previous, Supplier<PageMenu<P>> next) throws IllegalArgumentException {
-        this(guiListener, plugin, page, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON.clone(), DEFAULT_NEXT_PAGE_BUTTON.clone());
+        this(guiListener, plugin, page, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
     }
 
     /**
@@ -84,7 +92,7 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @throws IllegalArgumentException if the page size is below 9 or above 45
      */
     public PageMenu(P plugin, GuiInventoryHolder page, String title, Supplier<PageMenu<P>> previous, Supplier<PageMenu<P>> next) throws IllegalArgumentException {
-        this(plugin, page, title, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON.clone(), DEFAULT_NEXT_PAGE_BUTTON.clone());
+        this(plugin, page, title, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
     }
 
     /**
@@ -98,7 +106,7 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @throws IllegalArgumentException if the page size is below 9 or above 45
      */
     public PageMenu(GuiListener guiListener, P plugin, GuiInventoryHolder page, String title, Supplier<PageMenu<P>> previous, Supplier<PageMenu<P>> next) throws IllegalArgumentException {
-        this(guiListener, plugin, page, title, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON.clone(), DEFAULT_NEXT_PAGE_BUTTON.clone());
+        this(guiListener, plugin, page, title, previous, next, DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
     }
 
     /**
@@ -133,8 +141,10 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         this.nextButtonIndex = this.renderedNextIndex = calculateInnerPageSize(myPage) + 6;
         this.previousPageSupplier = previous;
         this.nextPageSupplier = next;
-        this.previousPageButton = this.renderedPreviousStack = previousPageButton;
-        this.nextPageButton = this.renderedNextStack = nextPageButton;
+        this.previousPageButton = previousPageButton;
+        this.nextPageButton = nextPageButton;
+        this.previousPageIcon = this.renderedPreviousIcon = IconPool.getInstance().intern(previousPageButton);
+        this.nextPageIcon = this.renderedNextIcon = IconPool.getInstance().intern(nextPageButton);
         this.title = null;
 
         addButtonListeners(); //receive inventory updates from the page
@@ -174,8 +184,10 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         this.nextButtonIndex = this.renderedNextIndex = calculateInnerPageSize(myPage) + 6;
         this.previousPageSupplier =  previous;
         this.nextPageSupplier = next;
-        this.previousPageButton = this.renderedPreviousStack = previousPageButton;
-        this.nextPageButton = this.renderedNextStack = nextPageButton;
+        this.previousPageButton = previousPageButton;
+        this.nextPageButton = nextPageButton;
+        this.previousPageIcon = this.renderedPreviousIcon = IconPool.getInstance().intern(previousPageButton);
+        this.nextPageIcon = this.renderedNextIcon = IconPool.getInstance().intern(nextPageButton);
         this.title = title;
 
         addButtonListeners(); //receive inventory updates from the page.
@@ -205,6 +217,13 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         return renderedPage;
     }
 
+    //whether a player sees this page: in this menu itself, or in the menu that renders it in place. used by PageCache to pin pages.
+    boolean isViewed() {
+        if (!getInventory().getViewers().isEmpty()) return true;
+        PageMenu<P> host = hostingPage;
+        return host != this && host.renderedPage == this && !host.getInventory().getViewers().isEmpty();
+    }
+
     /**
      * Get the page that this menu was initialised with.
      * @return the page owned by this menu
@@ -261,6 +280,34 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         return Optional.ofNullable(previousPageSupplier);
     }
 
+    /**
+     * Get the index of the page that is currently rendered by the menu.
+     * @return the index of the page, or -1 if the page was not created from a {@link PageSource}
+     */
+    public int getPageIndex() {
+        return getRenderedPage().pageIndex;
+    }
+
+    /**
+     * Get the number of pages of the source of the page that is currently rendered by the menu.
+     * @return the number of pages, or -1 if the page was not created from a {@link PageSource}
+     */
+    public int getPageCount() {
+        PageCache<P> cache = getRenderedPage().pageCache;
+        return cache == null ? -1 : cache.getPageCount();
+    }
+
+    /**
+     * Get the supplier that supplies the menu for the page at an index. Only the page at the index is created, not the pages in between.
+     * @param index the index of the page
+     * @return the Optional containing the supplier, or the empty Optional if the page was not created from a {@link PageSource} or the index is out of range
+     */
+    public Optional<? extends Supplier<? extends PageMenu<P>>> getPageMenu(int index) {
+        PageCache<P> cache = getRenderedPage().pageCache;
+        if (cache == null || index < 0 || index >= cache.getPageCount()) return Optional.empty();
+        return Optional.of(() -> cache.get(index));
+    }
+
     /**
      * Create pages from a series of GUIs.
      * @param plugin your plugin
@@ -269,7 +316,7 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @return the menu containing the first page
      */
     public static <P extends Plugin> PageMenu<P> create(P plugin, Iterator<? extends GuiInventoryHolder<?>> pageSupplier) {
-        return create(plugin, Objects.requireNonNull(pageSupplier, "PageSupplier cannot be null"), DEFAULT_PREVIOUS_PAGE_BUTTON.clone(), DEFAULT_NEXT_PAGE_BUTTON.clone());
+        return create(plugin, Objects.requireNonNull(pageSupplier, "PageSupplier cannot be null"), DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
     }
 
     /**
@@ -281,7 +328,7 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @return the menu containing the first page
      */
     public static <P extends Plugin> PageMenu<P> create(P plugin, String title, Iterator<? extends GuiInventoryHolder<?>> pageSupplier) {
-        return create(plugin, title, Objects.requireNonNull(pageSupplier, "PageSupplier cannot be null"), DEFAULT_PREVIOUS_PAGE_BUTTON.clone(), DEFAULT_NEXT_PAGE_BUTTON.clone());
+        return create(plugin, title, Objects.requireNonNull(pageSupplier, "PageSupplier cannot be null"), DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
     }
 
     /**
@@ -311,6 +358,109 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         return create(plugin, title, Objects.requireNonNull(pageSupplier, "PageSupplier cannot be null"), null, previousPageButton, nextPageButton);
     }
 
+    /**
+     * Create pages from GUIs that are created by index. At most {@code cacheSize} pages are kept in memory per returned menu;
+     * the pages that were used least recently and that nobody is viewing are evicted, and created again by the page function when they are visited again.
+     * Unlike the pages created from an iterator, the memory used by a player who pages through many pages does not grow with the number of visited pages.
+     *
+     * @param plugin your plugin
+     * @param title the title of the pages, or null for the default title
+     * @param pageCount the number of pages
+     * @param pages the function that creates the page at an index, from 0 (inclusive) to pageCount (exclusive)
+     * @param cacheSize the maximum number of pages that are kept in memory
+     * @param <P> your Plugin type
+     * @return the menu containing the first page
+     * @throws IllegalArgumentException if pageCount or cacheSize is less than one
+     */
+    public static <P extends Plugin> PageMenu<P> create(P plugin, String title, int pageCount, IntFunction<? extends GuiInventoryHolder<?>> pages, int cacheSize) {
+        return create(plugin, title, pageCount, pages, cacheSize, DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
+    }
+
+    /**
+     * Create pages from GUIs that are created by index. At most {@code cacheSize} pages are kept in memory per returned menu;
+     * the pages that were used least recently and that nobody is viewing are evicted, and created again by the page function when they are visited again.
+     * Unlike the pages created from an iterator, the memory used by a player who pages through many pages does not grow with the number of visited pages.
+     *
+     * @param plugin your plugin
+     * @param title the title of the pages, or null for the default title
+     * @param pageCount the number of pages
+     * @param pages the function that creates the page at an index, from 0 (inclusive) to pageCount (exclusive)
+     * @param cacheSize the maximum number of pages that are kept in memory
+     * @param previousPageButton the ItemStack used for the previous-page button
+     * @param nextPageButton the ItemStack used for the next-page button
+     * @param <P> your Plugin type
+     * @return the menu containing the first page
+     * @throws IllegalArgumentException if pageCount or cacheSize is less than one
+     */
+    public static <P extends Plugin> PageMenu<P> create(P plugin, String title, int pageCount, IntFunction<? extends GuiInventoryHolder<?>> pages, int cacheSize,
+                                                        ItemStack previousPageButton, ItemStack nextPageButton) {
+        return create(plugin, title, PageSource.of(pageCount, pages), cacheSize, previousPageButton, nextPageButton);
+    }
+
+    /**
+     * Create pages from a source of pages. At most {@code cacheSize} pages are kept in memory per returned menu;
+     * the pages that were used least recently and that nobody is viewing are evicted, and created again by the source when they are visited again.
+     *
+     * @param plugin your plugin
+     * @param title the title of the pages, or null for the default title
+     * @param source the source of the pages
+     * @param cacheSize the maximum number of pages that are kept in memory
+     * @param <P> your Plugin type
+     * @return the menu containing the first page
+     * @throws IllegalArgumentException if the source has no pages or cacheSize is less than one
+     */
+    public static <P extends Plugin> PageMenu<P> create(P plugin, String title, PageSource source, int cacheSize) {
+        return create(plugin, title, source, cacheSize, DEFAULT_PREVIOUS_PAGE_BUTTON, DEFAULT_NEXT_PAGE_BUTTON);
+    }
+
+    /**
+     * Create pages from a source of pages. At most {@code cacheSize} pages are kept in memory per returned menu;
+     * the pages that were used least recently and that nobody is viewing are evicted, and created again by the source when they are visited again.
+     *
+     * @param plugin your plugin
+     * @param title the title of the pages, or null for the default title
+     * @param source the source of the pages
+     * @param cacheSize the maximum number of pages that are kept in memory
+     * @param previousPageButton the ItemStack used for the previous-page button
+     * @param nextPageButton the ItemStack used for the next-page button
+     * @param <P> your Plugin type
+     * @return the menu containing the first page
+     * @throws IllegalArgumentException if the source has no pages or cacheSize is less than one
+     */
+    public static <P extends Plugin> PageMenu<P> create(P plugin, String title, PageSource source, int cacheSize, ItemStack previousPageButton, ItemStack nextPageButton) {
+        return create(plugin, title, source, cacheSize, previousPageButton, nextPageButton, null);
+    }
+
+    /**
+     * Create pages from a source of pages. At most {@code cacheSize} pages are kept in memory per returned menu;
+     * the pages that were used least recently and that nobody is viewing are evicted, and created again by the source when they are visited again.
+     * <p>
+     * Because the pages are created by index, the menus can get controls to jump to the first and last page, to jump ten pages back and forth,
+     * and to pick a page. Jumping creates only the target page.
+     *
+     * @param plugin your plugin
+     * @param title the title of the pages, or null for the default title
+     * @param source the source of the pages
+     * @param cacheSize the maximum number of pages that are kept in memory
+     * @param previousPageButton the ItemStack used for the previous-page button
+     * @param nextPageButton the ItemStack used for the next-page button
+     * @param jumpControls the controls to jump to any page, or null for none
+     * @param <P> your Plugin type
+     * @return the menu containing the first page
+     * @throws IllegalArgumentException if the source has no pages or cacheSize is less than one
+     * @see JumpControls#defaults()
+     */
+    public static <P extends Plugin> PageMenu<P> create(P plugin, String title, PageSource source, int cacheSize, ItemStack previousPageButton, ItemStack nextPageButton,
+                                                        JumpControls jumpControls) {
+        Objects.requireNonNull(plugin, "Plugin cannot be null");
+        Objects.requireNonNull(source, "Source cannot be null");
+        int pageCount = source.getPageCount();
+        if (pageCount < 1) throw new IllegalArgumentException("Page count must be at least one, got: " + pageCount);
+        if (cacheSize < 1) throw new IllegalArgumentException("Cache size must be at least one, got: " + cacheSize);
+
+        return new PageCache<>(plugin, title, pageCount, source, cacheSize, previousPageButton, nextPageButton, jumpControls).get(0);
+    }
+
     //private because the previous page supplier argument can only be provided by recursive calls.
     private static <P extends Plugin> PageMenu<P> create(P plugin, Iterator<? extends GuiInventoryHolder<?>> nextSupplier, Supplier<PageMenu<P>> previous, ItemStack previousPageButton, ItemStack nextPageButton) {
         GuiInventoryHolder<?> page = nextSupplier.next();
@@ -318,8 +468,8 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         if (nextSupplier.hasNext()) pageMenu.nextPageSupplier = new CachedSupplier<>(() -> create(plugin,
                 nextSupplier,   //the nextSupplier is the iterator
                 () -> pageMenu, //the previousSupplier is the pageMenu that was created just now
-                previousPageButton == null ? null : previousPageButton.clone(), //I don't like this because the itemstack that was passed as a parameter may have changed in the meantime. oh well.
-                nextPageButton == null ? null : nextPageButton.clone()));       //Idem
+                previousPageButton, //all pages share one pooled copy of the stack that was passed as a parameter.
+                nextPageButton));   //Idem
         return pageMenu;
     }
 
@@ -331,8 +481,8 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
                 title,
                 nextSupplier,   //the nextSupplier is the iterator
                 () -> pageMenu, //the previousSupplier is the pageMenu that was created just now
-                previousPageButton == null ? null : previousPageButton.clone(), //Idem
-                nextPageButton == null ? null : nextPageButton.clone()));       //Idem
+                previousPageButton, //Idem
+                nextPageButton));   //Idem
         return pageMenu;
     }
 
@@ -351,8 +501,7 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         GuiInventoryHolder<?> page = getPage();
         if (page instanceof MenuHolder) {
             MenuHolder<?> menuPage = (MenuHolder<?>) page;
-            menuPage.addButtonAddCallback(this);
-            menuPage.addButtonRemoveCallback(this);
+            menuPage.addButtonChangeListener(this);
         }
     }
 
@@ -361,11 +510,30 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         GuiInventoryHolder<?> page = getPage();
         if (page instanceof MenuHolder) {
             MenuHolder<?> menuPage = (MenuHolder<?>) page;
-            menuPage.removeButtonAddCallback(this);
-            menuPage.removeButtonRemoveCallback(this);
+            menuPage.removeButtonChangeListener(this);
         }
     }
 
+    /**
+     * Callback method that is called when slots changed in the page that this menu contains.
+     * This callback copies the icons in the changed slots of the page to the inventory of this PageMenu, once per tick,
+     * on the thread of a player who views this PageMenu, or on the next tick if nobody views it.
+     *
+     * @param changes the changed slots of the page
+     */
+    @Override
+    public void onButtonsChanged(ButtonChanges changes) {
+        GuiInventoryHolder<?> page = getPage();
+        if (changes.getMenu() != page) return; //a page that we no longer render.
+
+        Inventory pageInventory = page.getInventory();
+        Inventory inventory = getInventory();
+        int pageSize = pageInventory.getSize();
+        changes.forEachChangedSlot(slot -> {
+            if (slot < pageSize) inventory.setItem(slot, pageInventory.getItem(slot));
+        });
+    }
+
     /**
      * Callback method that is called when a button is added in the page that this menu contains.
      * This callback adds the icon to the inventory of this PageMenu.
@@ -373,12 +541,14 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @param slot the slot in the page
      * @param button the button that was added to the page
      * @return true
+     * @deprecated PageMenu no longer registers itself as a ButtonAddCallback, it uses {@link #onButtonsChanged(ButtonChanges)} instead.
      */
+    @Deprecated
     @Override
     public boolean onAdd(int slot, MenuButton button) {
         //called when the button is added to the page that we hold.
         //in that case, we want to set the icon ItemStack in our inventory.
-        getPage().getInventory().setItem(slot, button.getIcon());
+        getPage().getInventory().setItem(slot, Icon.iconStack(button));
         return true;
     }
 
@@ -389,7 +559,9 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
      * @param slot the slot in the page
      * @param button the button that was removed from the page
      * @return true
+     * @deprecated PageMenu no longer registers itself as a ButtonRemoveCallback, it uses {@link #onButtonsChanged(ButtonChanges)} instead.
      */
+    @Deprecated
     @Override
     public boolean onRemove(int slot, MenuButton button) {
         //called when the button is removed from the page that we hold.
@@ -419,104 +591,137 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
 //        }
 
         //reset next-page and previous-page buttons
-        getRenderedPage().getNextPageMenu().ifPresentOrElse(next -> {
+        PageMenu<P> rendered = getRenderedPage();
+        Batch batch = batch();
+        batch.setButton(renderedNextIndex, rendered.getNextPageMenu().map(next -> makeNavigationButton(renderedNextIcon, next, currentInvSize)).orElse(null));
+        batch.setButton(renderedPreviousIndex, rendered.getPreviousPageMenu().map(previous -> makeNavigationButton(renderedPreviousIcon, previous, currentInvSize)).orElse(null));
+
+        //pages that were created from a PageSource with jump controls can jump to any page.
+        PageCache<P> cache = rendered.pageCache;
+        JumpControls controls = cache == null ? null : cache.getJumpControls();
+        if (controls != null) {
+            int controlRow = renderedPreviousIndex - 2;
+            int index = rendered.pageIndex;
+            int lastIndex = cache.getPageCount() - 1;
+
+            batch.setButton(controlRow, index > 0 ? makeJumpButton(controls.firstPageIcon, cache, 0, currentInvSize) : null);
+            batch.setButton(controlRow + 1, index - 10 >= 0 ? makeJumpButton(controls.backTenPagesIcon, cache, index - 10, currentInvSize) : null);
+            batch.setButton(controlRow + 4, lastIndex > 0 && controls.pageIcons != null ? makePagePickerButton(controls, cache, index) : null);
+            batch.setButton(controlRow + 7, index + 10 <= lastIndex ? makeJumpButton(controls.forwardTenPagesIcon, cache, index + 10, currentInvSize) : null);
+            batch.setButton(controlRow + 8, index < lastIndex ? makeJumpButton(controls.lastPageIcon, cache, lastIndex, currentInvSize) : null);
+        }
 
-            MenuButton toNextPageButton = new ItemButton(renderedNextStack) {
-                @Override
-                public void onClick(MenuHolder holder, InventoryClickEvent event) {
-                    PageMenu<P> nextPageMenu = next.get();
-                    GuiInventoryHolder<?> nextPage = nextPageMenu.getOwnedPage();
-                    Inventory nextInventory = nextPage.getInventory();
-                    //determine whether a re-open is required
-                    if (!needsRedirects() && nextInventory.getSize() == currentInvSize && Objects.equals(nextPageMenu.title, title)) {
-                        //no redirect required.
-
-                        //call InventoryCloseEvent for the currently-rendered page
-                        InventoryCloseEvent proxyCloseEvent = new InventoryCloseEvent(event.getView());
-                        getPlugin().getServer().getPluginManager().callEvent(proxyCloseEvent);
-
-                        //copy stuff over to our own inventory and reset the buttons.
-                        removeButtonListeners();
-                        renderedPage = nextPageMenu;
-                        renderedPage.hostingPage = PageMenu.this;
-                        addButtonListeners();
-                        renderedPreviousIndex = renderedPage.previousButtonIndex;
-                        renderedNextIndex = renderedPage.nextButtonIndex;
-                        renderedPreviousStack = renderedPage.previousPageButton;
-                        renderedNextStack = renderedPage.nextPageButton;
-
-                        //call InventoryOpenEvent for tne newly-rendered page
-                        weHaveBeenOpened = false;
-                        InventoryOpenEvent proxyOpenEvent = new InventoryOpenEvent(event.getView());
-                        getPlugin().getServer().getPluginManager().callEvent(proxyOpenEvent);
-
-                        //update view
-                        updateView();
-
-                    } else {
-                        //redirect required
-                        Scheduler.get().runTaskLater(holder.getPlugin(), event.getWhoClicked(), () -> {
-                            event.getView().close();
-                            event.getWhoClicked().openInventory(nextPageMenu.getInventory());
-                        });
-                    }
-                }
-            };
+        batch.commit();
+    }
 
-            this.setButton(renderedNextIndex, toNextPageButton);
+    private MenuButton<?> makeJumpButton(Icon icon, PageCache<P> cache, int index, int currentInvSize) {
+        if (icon == null) return null;
+        return makeNavigationButton(icon, () -> cache.get(index), currentInvSize);
+    }
 
-        }, /*next page not present*/ () -> {
-            this.unsetButton(renderedNextIndex);
-        });
+    //creates a button that renders the target page in place when possible, or redirects to it otherwise.
+    private MenuButton<?> makeNavigationButton(Icon icon, Supplier<? extends PageMenu<P>> target, int currentInvSize) {
+        return new ItemButton<MenuHolder<?>>(icon) {
+            @Override
+            public void onClick(MenuHolder<?> holder, InventoryClickEvent event) {
+                PageMenu<P> targetMenu = target.get();
+                GuiInventoryHolder<?> targetPage = targetMenu.getOwnedPage();
+                Inventory targetInventory = targetPage.getInventory();
+                //determine whether a re-open is required
+                if (!needsRedirects() && targetInventory.getSize() == currentInvSize && Objects.equals(targetMenu.title, title)) {
+                    //no redirect required.
+
+                    //call InventoryCloseEvent for the currently-rendered page
+                    InventoryCloseEvent proxyCloseEvent = new InventoryCloseEvent(event.getView());
+                    getPlugin().getServer().getPluginManager().callEvent(proxyCloseEvent);
+
+                    //copy stuff over to our own inventory and reset the buttons.
+                    removeButtonListeners();
+                    renderedPage = targetMenu;
+                    renderedPage.hostingPage = PageMenu.this;
+                    addButtonListeners();
+                    renderedPreviousIndex = renderedPage.previousButtonIndex;
+                    renderedNextIndex = renderedPage.nextButtonIndex;
+                    renderedPreviousIcon = renderedPage.previousPageIcon;
+                    renderedNextIcon = renderedPage.nextPageIcon;
+
+                    //call InventoryOpenEvent for tne newly-rendered page
+                    weHaveBeenOpened = false;
+                    InventoryOpenEvent proxyOpenEvent = new InventoryOpenEvent(event.getView());
+                    getPlugin().getServer().getPluginManager().callEvent(proxyOpenEvent);
+
+                    //update view
+                    updateView();
+
+                } else {
+                    //redirect required
+                    Scheduler.get().runTaskLater(holder.getPlugin(), event.getWhoClicked(), () -> {
+                        PageMenu<P> redirectMenu = getRedirectMenu(targetMenu);
+                        event.getView().close();
+                        event.getWhoClicked().openInventory(redirectMenu.getInventory());
+                    });
+                }
+            }
+        };
+    }
 
-        getRenderedPage().getPreviousPageMenu().ifPresentOrElse(previous -> {
-            //TODO un-duplicate this code?
-            MenuButton toPreviousPageButton = new ItemButton(renderedPreviousStack) {
-                @Override
-                public void onClick(MenuHolder holder, InventoryClickEvent event) {
-                    PageMenu<P> previousPageMenu = previous.get();
-                    GuiInventoryHolder<?> previousPage = previousPageMenu.getOwnedPage();
-                    Inventory previousInventory = previousPage.getInventory();
-                    //determine whether a re-open is required
-                    if (!needsRedirects() && previousInventory.getSize() == currentInvSize && Objects.equals(previousPageMenu.title, title)) {
-                        //no redirect required
-
-                        //call InventoryCloseEvent for the currently-rendered page
-                        InventoryCloseEvent proxyCloseEvent = new InventoryCloseEvent(event.getView());
-                        getPlugin().getServer().getPluginManager().callEvent(proxyCloseEvent);
-
-                        //copy stuff over to our own inventory and reset the buttons.
-                        removeButtonListeners();
-                        renderedPage = previousPageMenu;
-                        renderedPage.hostingPage = PageMenu.this;
-                        addButtonListeners();
-                        renderedPreviousIndex = renderedPage.previousButtonIndex;
-                        renderedNextIndex = renderedPage.nextButtonIndex;
-                        renderedPreviousStack = renderedPage.previousPageButton;
-                        renderedNextStack = renderedPage.nextPageButton;
-
-                        //call InventoryOpenEvent for tne newly-rendered page
-                        weHaveBeenOpened = false;
-                        InventoryOpenEvent proxyOpenEvent = new InventoryOpenEvent(event.getView());
-                        getPlugin().getServer().getPluginManager().callEvent(proxyOpenEvent);
-
-                        //update view
-                        updateView();
-
-                    } else {
-                        //redirect required
-                        Scheduler.get().runTaskLater(holder.getPlugin(), event.getWhoClicked(), () -> {
-                            event.getView().close();
-                            event.getWhoClicked().openInventory(previousPageMenu.getInventory());
-                        });
-                    }
+    //the menu to open to show the target page. a cached page menu can be rendering another page in place for someone else.
+    //must be called on the thread of the player who is going to open the menu.
+    private static <P extends Plugin> PageMenu<P> getRedirectMenu(PageMenu<P> target) {
+        PageCache<P> cache = target.pageCache;
+        return cache == null ? target : cache.getRendering(target.pageIndex);
+    }
+
+    //creates a button that shows the current page, and opens a menu with the pages around the current page when clicked.
+    private MenuButton<?> makePagePickerButton(JumpControls controls, PageCache<P> cache, int currentIndex) {
+        int pageCount = cache.getPageCount();
+
+        return new ItemButton<MenuHolder<?>>(controls.pageIcons.apply(currentIndex)) {
+            @Override
+            public void onClick(MenuHolder<?> holder, InventoryClickEvent event) {
+                int from = Math.max(0, Math.min(currentIndex - PAGE_PICKER_SIZE / 2, pageCount - PAGE_PICKER_SIZE));
+                int to = Math.min(pageCount, from + PAGE_PICKER_SIZE);
+
+                MenuHolder<P> picker = controls.pickerTitle == null
+                        ? new MenuHolder<>(guiListener, getPlugin(), PAGE_PICKER_SIZE)
+                        : new MenuHolder<>(guiListener, getPlugin(), PAGE_PICKER_SIZE, controls.pickerTitle.getTitle(from + 1, to));
+                Batch batch = picker.batch();
+                for (int index = from; index < to; index++) {
+                    int targetIndex = index;
+                    batch.setButton(index - from, new ItemButton<MenuHolder<?>>(controls.pageIcons.apply(index)) {
+                        @Override
+                        public void onClick(MenuHolder<?> pickerHolder, InventoryClickEvent pickerEvent) {
+                            HumanEntity clicker = pickerEvent.getWhoClicked();
+                            Scheduler.get().runTaskLater(getPlugin(), clicker, () -> {
+                                PageMenu<P> targetMenu = cache.getRendering(targetIndex);
+                                pickerEvent.getView().close();
+                                clicker.openInventory(targetMenu.getInventory());
+                            });
+                        }
+                    });
                 }
-            };
+                batch.commit();
 
-            this.setButton(renderedPreviousIndex, toPreviousPageButton);
-        }, /*previous page not present*/ () -> {
-            this.unsetButton(renderedPreviousIndex);
-        });
+                Scheduler.get().runTaskLater(getPlugin(), event.getWhoClicked(), () -> {
+                    event.getView().close();
+                    event.getWhoClicked().openInventory(picker.getInventory());
+                });
+            }
+        };
+    }
+
+    //makes this menu render its own page again, after it rendered other pages in place. must only be called while nobody is viewing this menu.
+    void renderOwnPage() {
+        if (renderedPage == this) return;
+
+        removeButtonListeners();
+        renderedPage = this;
+        addButtonListeners();
+        renderedPreviousIndex = previousButtonIndex;
+        renderedNextIndex = nextButtonIndex;
+        renderedPreviousIcon = previousPageIcon;
+        renderedNextIcon = nextPageIcon;
+        weHaveBeenOpened = false;
     }
 
     /**
@@ -750,6 +955,117 @@ public class PageMenu<P extends Plugin> extends MenuHolder<P> implements MenuHol
         }
     }
 
+    /**
+     * Controls with which the pages of a {@link PageMenu} that were created from a {@link PageSource} can jump to any page.
+     * The controls are shown in the bottom row, next to the previous-page and next-page buttons: the first-page and back-ten-pages buttons on the left,
+     * the page picker in the middle, and the forward-ten-pages and last-page buttons on the right.
+     * The page picker shows the current page; when it is clicked, it opens a menu with the pages around the current page.
+     * Controls of which the icon is null are left out.
+     *
+     * @see PageMenu#create(Plugin, String, PageSource, int, ItemStack, ItemStack, JumpControls)
+     */
+    public static final class JumpControls {
+
+        private static final JumpControls DEFAULT = new JumpControls(
+                new ItemBuilder(Material.PURPLE_GLAZED_TERRACOTTA).name("First").build(),
+                new ItemBuilder(Material.MAGENTA_GLAZED_TERRACOTTA).name("Back 10").build(),
+                new ItemBuilder(Material.MAGENTA_GLAZED_TERRACOTTA).name("Forward 10").build(),
+                new ItemBuilder(Material.PURPLE_GLAZED_TERRACOTTA).name("Last").build(),
+                index -> new ItemBuilder(Material.PAPER).amount(Math.min(64, index + 1)).name("Page " + (index + 1)).build(),
+                (firstPage, lastPage) -> "Pages " + firstPage + "-" + lastPage);
+
+        private final Icon firstPageIcon, backTenPagesIcon, forwardTenPagesIcon, lastPageIcon;
+        private final IntFunction<? extends ItemStack> pageIcons;
+        private final PickerTitle pickerTitle;
+
+        /**
+         * Creates jump controls with custom icons.
+         * @param firstPageButton the icon of the button that jumps to the first page, or null for no such button
+         * @param backTenPagesButton the icon of the button that jumps ten pages back, or null for no such button
+         * @param forwardTenPagesButton the icon of the button that jumps ten pages forward, or null for no such button
+         * @param lastPageButton the icon of the button that jumps to the last page, or null for no such button
+         * @param pageButtons creates the icon of a page by index, for the page picker and the pages in the menu that it opens, or null for no page picker
+         * @param pickerTitle creates the title of the menu that the page picker opens, or null for the default inventory title
+         */
+        public JumpControls(ItemStack firstPageButton, ItemStack backTenPagesButton, ItemStack forwardTenPagesButton, ItemStack lastPageButton,
+                            IntFunction<? extends ItemStack> pageButtons, PickerTitle pickerTitle) {
+            IconPool pool = IconPool.getInstance();
+            this.firstPageIcon = pool.intern(firstPageButton);
+            this.backTenPagesIcon = pool.intern(backTenPagesButton);
+            this.forwardTenPagesIcon = pool.intern(forwardTenPagesButton);
+            this.lastPageIcon = pool.intern(lastPageButton);
+            this.pageIcons = pageButtons;
+            this.pickerTitle = pickerTitle;
+        }
+
+        /**
+         * Get the jump controls with the default icons and picker title.
+         * @return the default jump controls
+         */
+        public static JumpControls defaults() {
+            return DEFAULT;
+        }
+
+        /**
+         * Creates the title of the menu that the page picker opens.
+         */
+        @FunctionalInterface
+        public static interface PickerTitle {
+
+            /**
+             * Creates the title for a page picker menu.
+             * @param firstPage the number of the first page in the menu, starting at 1
+             * @param lastPage the number of the last page in the menu
+             * @return the title
+             */
+            public String getTitle(int firstPage, int lastPage);
+
+        }
+    }
+
+    /**
+     * A source of pages that can create the page at any index, so that pages can be visited in any order.
+     * The page count is read once, when the pages are {@linkplain PageMenu#create(Plugin, String, PageSource, int) created}.
+     *
+     * @see PageMenu#create(Plugin, String, PageSource, int)
+     */
+    public static interface PageSource {
+
+        /**
+         * Get the number of pages.
+         * @return the number of pages
+         */
+        public int getPageCount();
+
+        /**
+         * Creates the page at an index.
+         * @param index the index of the page, from 0 (inclusive) to the page count (exclusive)
+         * @return the page - cannot be larger than 45 slots
+         */
+        public GuiInventoryHolder<?> getPage(int index);
+
+        /**
+         * Creates a source of pages from a page count and a function that creates pages.
+         * @param pageCount the number of pages
+         * @param pages the function that creates the page at an index
+         * @return the source of pages
+         */
+        public static PageSource of(int pageCount, IntFunction<? extends GuiInventoryHolder<?>> pages) {
+            Objects.requireNonNull(pages, "Pages cannot be null");
+            return new PageSource() {
+                @Override
+                public int getPageCount() {
+                    return pageCount;
+                }
+
+                @Override
+                public GuiInventoryHolder<?> getPage(int index) {
+                    return pages.apply(index);
+                }
+            };
+        }
+    }
+
     private class ProxyView extends InventoryView {
         private final InventoryView original;
 
@@ -2,6 +2,7 @@ package xyz.janboerman.guilib.api.menu;
 
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
+import xyz.janboerman.guilib.util.Overrides;
 
 import java.util.Objects;
 import java.util.Optional;
@@ -15,6 +16,13 @@ import java.util.function.BiPredicate;
  */
 public class PredicateButton<MH extends MenuHolder<?>> implements MenuButton<MH> {
 
+    private static final ClassValue<Boolean> OVERRIDES_GET_ICON = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> buttonClass) {
+            return Overrides.overrides(buttonClass, PredicateButton.class, "getIcon");
+        }
+    };
+
     protected MenuButton<MH> delegate;
     private final BiPredicate<MH, InventoryClickEvent> predicate;
     private final BiConsumer<MH, InventoryClickEvent> predicateFailedCallback;
@@ -88,6 +96,25 @@ public class PredicateButton<MH extends MenuHolder<?>> implements MenuButton<MH>
         return delegate.getIcon();
     }
 
+    /**
+     * Gets the icon handle for this button.
+     * @return the icon handle of the delegate button, or the handle of the icon returned by {@link #getIcon()} if a subclass overrides it
+     */
+    @Override
+    public Icon getIconHandle() {
+        //a subclass that overrides getIcon decides the icon itself.
+        return OVERRIDES_GET_ICON.get(getClass()) ? Icon.wrap(getIcon()) : delegate.getIconHandle();
+    }
+
+    /**
+     * Tests whether copies of a menu can share this button.
+     * @return whether the delegate button is shareable
+     */
+    @Override
+    public boolean isShareable() {
+        return delegate.isShareable();
+    }
+
     /**
      * Decides whether this button can be added to the menu.
      * The default implementation delegates to the delegate.
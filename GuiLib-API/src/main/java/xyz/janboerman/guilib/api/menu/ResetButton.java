@@ -133,14 +133,16 @@ public class ResetButton<MH extends MenuHolder<?>> extends ItemButton<MH> {
     }
 
     /**
-     * Resets the buttons in the menu.
+     * Resets the buttons in the menu, in a single {@linkplain MenuHolder#batch() batch}.
      *
      * @param menuHolder the menu holder
      * @param event the InventoryClickEvent
      */
     @Override
     public void onClick(MH menuHolder, InventoryClickEvent event) {
-        getResetSlots().forEach(slot -> menuHolder.setButton(slot, getButtonFor(slot)));
+        var batch = menuHolder.batch();
+        getResetSlots().forEach(slot -> batch.setButton(slot, getButtonFor(slot)));
+        batch.commit();
     }
 
 }
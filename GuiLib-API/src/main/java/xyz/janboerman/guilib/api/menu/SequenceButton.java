@@ -3,6 +3,7 @@ package xyz.janboerman.guilib.api.menu;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
+import xyz.janboerman.guilib.util.Overrides;
 
 import java.util.Objects;
 
@@ -16,6 +17,13 @@ import java.util.Objects;
 public class SequenceButton<P extends Plugin, MHR extends MenuHolder<P>, MH1 extends MHR, MH2 extends MHR>
         implements MenuButton<MHR> {
 
+    private static final ClassValue<Boolean> OVERRIDES_GET_ICON = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> buttonClass) {
+            return Overrides.overrides(buttonClass, SequenceButton.class, "getIcon");
+        }
+    };
+
     private final MenuButton<MH1> first;
     private final MenuButton<MH2> second;
 
@@ -62,6 +70,25 @@ public class SequenceButton<P extends Plugin, MHR extends MenuHolder<P>, MH1 ext
         return getFirst().getIcon();
     }
 
+    /**
+     * Get the icon handle.
+     * @return the icon handle of the first button, or the handle of the icon returned by {@link #getIcon()} if a subclass overrides it
+     */
+    @Override
+    public Icon getIconHandle() {
+        //a subclass that overrides getIcon decides the icon itself.
+        return OVERRIDES_GET_ICON.get(getClass()) ? Icon.wrap(getIcon()) : getFirst().getIconHandle();
+    }
+
+    /**
+     * Tests whether copies of a menu can share this button.
+     * @return whether both the first and the second button are shareable
+     */
+    @Override
+    public boolean isShareable() {
+        return getFirst().isShareable() && getSecond().isShareable();
+    }
+
     /**
      * Delegates the onAdd callback to the first and second button - in that order.
      * @param holder the holder to which this button is added
@@ -173,7 +173,43 @@ public class YesNoMenu<P extends Plugin> extends MenuHolder<P> {
     }
 
     /**
-     * Called from the constructor. Override to customize the buttons.
+     * Creates a copy of a YesNoMenu, with the same actions. The copy sets up its own buttons in {@link #addCopiedButtons()}.
+     * @param prototype the YesNoMenu to copy
+     * @see MenuHolder#MenuHolder(MenuHolder)
+     */
+    protected YesNoMenu(YesNoMenu<P> prototype) {
+        super(prototype);
+
+        this.yesAction = prototype.yesAction;
+        this.noAction = prototype.noAction;
+    }
+
+    /**
+     * Creates a copy of this YesNoMenu.
+     * Subclasses must override this method using their copy constructor, and call {@link #addCopiedButtons()} on the copy.
+     * @return the copy
+     * @throws UnsupportedOperationException if this is an instance of a subclass that does not override this method
+     * @see #YesNoMenu(YesNoMenu)
+     */
+    @Override
+    public YesNoMenu<P> copy() {
+        if (getClass() != YesNoMenu.class) throw new UnsupportedOperationException(getClass().getName() + " does not override copy()");
+        YesNoMenu<P> copy = new YesNoMenu<>(this);
+        copy.addCopiedButtons();
+        return copy;
+    }
+
+    /**
+     * Adds the shared buttons to this copy, and sets up the buttons that could not be shared using {@link #setupButtons()}.
+     */
+    @Override
+    protected void addCopiedButtons() {
+        super.addCopiedButtons();
+        setupButtons();
+    }
+
+    /**
+     * Called from the constructor, and when a copy is completed. Override to customize the buttons.
      */
     protected void setupButtons() {
         setButton(0, makeButton(true));
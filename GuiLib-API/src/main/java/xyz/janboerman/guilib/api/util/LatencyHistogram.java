@@ -0,0 +1,213 @@
+package xyz.janboerman.guilib.api.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, with a fixed number of buckets.
+ * <p>
+ * Latencies below 16 nanoseconds each get their own bucket. Above that, every power of two is divided into 8 buckets of equal width,
+ * so recorded latencies are accurate to within 12.5%. Latencies above {@link #getHighestTrackableLatency()} are counted in the last bucket.
+ * Recording a latency never allocates and never blocks, so latencies can be recorded from many threads at once.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;           //8 buckets per power of two
+    private static final int LINEAR_BUCKET_COUNT = SUB_BUCKET_COUNT << 1;       //16 buckets for the latencies below 16 nanoseconds
+    private static final int HIGHEST_BIT = 35;                                  //2^36 nanoseconds is a little over a minute
+    private static final int BUCKET_COUNT = bucketIndex((1L << (HIGHEST_BIT + 1)) - 1) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < LINEAR_BUCKET_COUNT) return (int) nanos;
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+        if (highestBit > HIGHEST_BIT) return BUCKET_COUNT - 1;
+
+        int shift = highestBit - SUB_BUCKET_BITS;
+        //(nanos >>> shift) is in [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT)
+        return (shift << SUB_BUCKET_BITS) + (int) (nanos >>> shift);
+    }
+
+    private static long bucketLowerBound(int index) {
+        if (index < LINEAR_BUCKET_COUNT) return index;
+
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+        return subBucket << shift;
+    }
+
+    private static long bucketUpperBound(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : bucketLowerBound(index + 1) - 1;
+    }
+
+    /**
+     * Get the highest latency that is counted in its own bucket. Higher latencies are counted in the last bucket.
+     * @return the highest trackable latency in nanoseconds
+     */
+    public static long getHighestTrackableLatency() {
+        return bucketLowerBound(BUCKET_COUNT - 1) - 1;
+    }
+
+    /**
+     * Records a latency.
+     * @param nanos the latency in nanoseconds. Negative latencies are recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0L) nanos = 0L;
+
+        counts.getAndIncrement(bucketIndex(nanos));
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Clears all recorded latencies. Latencies that are recorded concurrently may or may not be cleared.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0L);
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    /**
+     * Take a snapshot of the recorded latencies.
+     * Latencies that are recorded concurrently may or may not be included in the snapshot.
+     * @return a new snapshot
+     */
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long count = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucketCount = counts.get(i);
+            bucketCounts[i] = bucketCount;
+            count += bucketCount;
+        }
+        return new Snapshot(bucketCounts, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram" + snapshot();
+    }
+
+    /**
+     * An immutable snapshot of a {@link LatencyHistogram}.
+     */
+    public static final class Snapshot {
+
+        private final long[] bucketCounts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] bucketCounts, long count, long totalNanos, long maxNanos) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Get the number of recorded latencies.
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the sum of the recorded latencies.
+         * @return the total latency in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Get the highest recorded latency.
+         * @return the maximum latency in nanoseconds, or 0 if no latencies were recorded
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Get the mean of the recorded latencies.
+         * @return the mean latency in nanoseconds, or 0 if no latencies were recorded
+         */
+        public double getMeanNanos() {
+            return count == 0L ? 0D : (double) totalNanos / count;
+        }
+
+        /**
+         * Get the latency below which the given percentage of the recorded latencies fall.
+         * The result is the upper bound of the bucket that contains the percentile, but never more than the highest recorded latency.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency in nanoseconds, or 0 if no latencies were recorded
+         * @throws IllegalArgumentException if the percentile is not between 0 and 100
+         */
+        public long getNanosAtPercentile(double percentile) {
+            if (!(percentile >= 0D && percentile <= 100D)) throw new IllegalArgumentException("Percentile must be between 0 and 100, got: " + percentile);
+            if (count == 0L) return 0L;
+
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100D * count));
+            long seen = 0L;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank) return Math.min(bucketUpperBound(i), maxNanos);
+            }
+            return maxNanos;
+        }
+
+        /**
+         * Get the number of buckets of the histogram.
+         * @return the number of buckets
+         */
+        public int getBucketCount() {
+            return bucketCounts.length;
+        }
+
+        /**
+         * Get the number of latencies that were recorded in a bucket.
+         * @param bucket the index of the bucket
+         * @return the count
+         */
+        public long getBucketCount(int bucket) {
+            return bucketCounts[bucket];
+        }
+
+        /**
+         * Get the lowest latency that is counted in a bucket.
+         * @param bucket the index of the bucket
+         * @return the lower bound of the bucket in nanoseconds
+         */
+        public long getBucketLowerBound(int bucket) {
+            return bucketLowerBound(bucket);
+        }
+
+        @Override
+        public String toString() {
+            return "(count=" + count
+                    + ",mean=" + (long) getMeanNanos() + "ns"
+                    + ",p50=" + getNanosAtPercentile(50D) + "ns"
+                    + ",p99=" + getNanosAtPercentile(99D) + "ns"
+                    + ",max=" + maxNanos + "ns)";
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package xyz.janboerman.guilib.util;
+
+/**
+ * Detects which methods a class overrides, so that callers can skip work for methods that a class inherits unchanged.
+ * Results should be cached per class, for example using a {@link ClassValue}.
+ */
+public class Overrides {
+
+    private Overrides() {}
+
+    /**
+     * Tests whether a class overrides a method. The method may be non-public.
+     * @param type the class to test
+     * @param declaringClass the superclass of the type that declares the method
+     * @param method the name of the method
+     * @param parameterTypes the (erased) parameter types of the method
+     * @return true if the type or a class between the type and the declaring class declares the method, or if that can't be determined
+     */
+    public static boolean overrides(Class<?> type, Class<?> declaringClass, String method, Class<?>... parameterTypes) {
+        for (Class<?> c = type; c != null && c != declaringClass; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(method, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                //look in the superclass
+            } catch (SecurityException e) {
+                return true; //can't tell, so assume that it does.
+            }
+        }
+        return false;
+    }
+
+}
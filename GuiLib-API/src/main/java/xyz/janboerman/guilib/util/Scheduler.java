@@ -1,5 +1,6 @@
 package xyz.janboerman.guilib.util;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.entity.HumanEntity;
 import org.bukkit.plugin.Plugin;
 
@@ -7,6 +8,12 @@ public interface Scheduler {
 
     public Task runTaskLater(Plugin plugin, HumanEntity viewer, Runnable task);
 
+    //on Folia, the task does not run if the viewer is removed from the world first. retired is run instead, and null is returned if the viewer was removed already.
+    //schedulers that do not retire tasks just run the task.
+    public default Task runTaskLater(Plugin plugin, HumanEntity viewer, Runnable task, Runnable retired) {
+        return runTaskLater(plugin, viewer, task);
+    }
+
     public Task runTaskLater(Plugin plugin, Runnable task);
 
     public Task runTaskLater(Plugin plugin, Runnable task, long ticksDelay);
@@ -34,6 +41,12 @@ class FoliaScheduler implements Scheduler {
         return new FoliaTask(viewer.getScheduler().run(plugin, scheduledTask -> task.run(), null));
     }
 
+    @Override
+    public FoliaTask runTaskLater(Plugin plugin, HumanEntity viewer, Runnable task, Runnable retired) {
+        ScheduledTask scheduledTask = viewer.getScheduler().run(plugin, t -> task.run(), retired);
+        return scheduledTask == null ? null : new FoliaTask(scheduledTask);
+    }
+
     @Override
     public FoliaTask runTaskLater(Plugin plugin, Runnable task) {
         return new FoliaTask(plugin.getServer().getGlobalRegionScheduler().run(plugin, scheduledTask -> task.run()));
@@ -0,0 +1,141 @@
+package xyz.janboerman.guilib.api;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers the {@link GuiRegistry} with registrations and lookups from many threads at once, like Folia's region threads do.
+ * Registrations make the segments resize while other threads read them optimistically, and dropped registrations are expunged concurrently.
+ */
+public class GuiRegistryStressTest {
+
+    private static final int THREAD_COUNT = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int OPERATIONS_PER_THREAD = 200_000;
+    private static final int SHARED_SLOTS = 4096;
+    private static final int RETAINED_PER_THREAD = 1024;
+
+    private static final class Registration {
+        private final Object baseInventory = new Object();
+        private final InventoryHolder holder = new TestHolder();
+    }
+
+    //a class rather than a lambda, because a non-capturing lambda would give every registration the same holder.
+    private static final class TestHolder implements InventoryHolder {
+        @Override
+        public Inventory getInventory() {
+            return null;
+        }
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.MINUTES) //a cycle in a bucket chain would make lookups spin forever.
+    public void testConcurrentRegistrationsAndLookups() throws InterruptedException {
+        GuiRegistry registry = new GuiRegistry();
+        //registrations that stay strongly reachable while they are in this array, such that lookups must find their holders.
+        AtomicReferenceArray<Registration> shared = new AtomicReferenceArray<>(SHARED_SLOTS);
+        AtomicInteger registrations = new AtomicInteger();
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Registration> retained = new ArrayList<>(RETAINED_PER_THREAD);
+
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int operation = random.nextInt(4);
+                if (operation == 0) {
+                    //register a new gui. older registrations are dropped, so that they become garbage and are expunged.
+                    Registration registration = new Registration();
+                    assertTrue(registry.putIfAbsent(registration.baseInventory, registration.holder), "Fresh inventory could not be registered");
+                    registrations.incrementAndGet();
+                    shared.set(random.nextInt(SHARED_SLOTS), registration);
+                    if (retained.size() == RETAINED_PER_THREAD) retained.set(random.nextInt(RETAINED_PER_THREAD), registration);
+                    else retained.add(registration);
+                } else if (operation == 1) {
+                    //look up a registration of this thread.
+                    if (!retained.isEmpty()) {
+                        Registration registration = retained.get(random.nextInt(retained.size()));
+                        assertSame(registration.holder, registry.get(registration.baseInventory), "Lookup of own registration returned the wrong holder");
+                    }
+                } else if (operation == 2) {
+                    //look up a registration of any thread, which is published after it was registered.
+                    Registration registration = shared.get(random.nextInt(SHARED_SLOTS));
+                    if (registration != null) {
+                        assertSame(registration.holder, registry.get(registration.baseInventory), "Lookup of shared registration returned the wrong holder");
+                    }
+                } else {
+                    //look up an inventory that was never registered.
+                    assertNull(registry.get(new Object()), "Lookup of unregistered inventory returned a holder");
+                }
+            }
+        });
+
+        assertEquals(registrations.get(), registry.getRegisteredCount(), "Registered count");
+        for (int slot = 0; slot < SHARED_SLOTS; slot++) {
+            Registration registration = shared.get(slot);
+            if (registration != null) assertSame(registration.holder, registry.get(registration.baseInventory), "Registration was lost");
+        }
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.MINUTES)
+    public void testOnlyOneRegistrationPerInventory() throws InterruptedException {
+        GuiRegistry registry = new GuiRegistry();
+        int inventoryCount = 10_000;
+        Object[] inventories = new Object[inventoryCount];
+        for (int i = 0; i < inventoryCount; i++) inventories[i] = new Object();
+        InventoryHolder[] winners = new InventoryHolder[inventoryCount];
+        AtomicInteger successes = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < inventoryCount; i++) {
+                InventoryHolder holder = new TestHolder();
+                if (registry.putIfAbsent(inventories[i], holder)) {
+                    successes.incrementAndGet();
+                    synchronized (winners) {
+                        winners[i] = holder;
+                    }
+                }
+            }
+        });
+
+        assertEquals(inventoryCount, successes.get(), "Every inventory must be registered exactly once");
+        assertEquals(inventoryCount, registry.size(), "Size");
+        for (int i = 0; i < inventoryCount; i++) {
+            assertSame(winners[i], registry.get(inventories[i]), "Lookup must return the holder that won the registration");
+        }
+    }
+
+    private static void runConcurrently(Runnable task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "GuiRegistryStressTest-" + t);
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        Throwable e = failure.get();
+        if (e != null) fail("Worker thread failed: " + e);
+    }
+}
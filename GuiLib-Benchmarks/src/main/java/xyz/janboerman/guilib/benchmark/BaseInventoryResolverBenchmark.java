@@ -0,0 +1,76 @@
+package xyz.janboerman.guilib.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.janboerman.guilib.api.BaseInventoryResolver;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per lookup of the base inventory of a gui inventory.
+ * <p>
+ * CraftBukkit is not available outside of a server, so {@link FakeCraftInventory} stands in for CraftInventory.
+ * {@link #reflective()} resolves the base inventory the way GuiListener did before {@link BaseInventoryResolver} was introduced:
+ * through {@link Method#invoke(Object, Object...)}. {@link #methodHandle()} resolves it the way the CraftInventory resolver does now:
+ * through a static final {@link MethodHandle} that is bound once. {@link #identity()} is the lower bound: the resolver that does no work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseInventoryResolverBenchmark {
+
+    private static final Method GET_INVENTORY_METHOD;
+    private static final MethodHandle GET_INVENTORY_HANDLE; //(Object)Object
+    static {
+        try {
+            GET_INVENTORY_METHOD = FakeCraftInventory.class.getMethod("getInventory");
+            GET_INVENTORY_HANDLE = MethodHandles.publicLookup().unreflect(GET_INVENTORY_METHOD)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final BaseInventoryResolver identityResolver = BaseInventoryResolver.identity();
+    private FakeCraftInventory inventory;
+
+    @Setup
+    public void setup() {
+        inventory = new FakeCraftInventory(new Object());
+    }
+
+    @Benchmark
+    public Object reflective() throws IllegalAccessException, InvocationTargetException {
+        return GET_INVENTORY_METHOD.invoke(inventory);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Throwable {
+        return (Object) GET_INVENTORY_HANDLE.invokeExact((Object) inventory);
+    }
+
+    @Benchmark
+    public Object identity() {
+        return identityResolver.getBaseInventory(null);
+    }
+
+    public static class FakeCraftInventory {
+        private final Object inventory;
+
+        public FakeCraftInventory(Object inventory) {
+            this.inventory = inventory;
+        }
+
+        public Object getInventory() {
+            return inventory;
+        }
+    }
+
+}
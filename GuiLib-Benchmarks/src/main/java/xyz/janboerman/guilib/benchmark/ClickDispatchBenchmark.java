@@ -0,0 +1,168 @@
+package xyz.janboerman.guilib.benchmark;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.*;
+import xyz.janboerman.guilib.api.GuiListener;
+import xyz.janboerman.guilib.api.menu.MenuButton;
+import xyz.janboerman.guilib.api.menu.MenuHolder;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of dispatching a click from a menu to the button in the clicked slot.
+ * <p>
+ * {@link #dispatch()} clicks a menu that looks up its buttons directly, which should not allocate:
+ * run with {@code -prof gc} and check that {@code gc.alloc.rate.norm} is (close to) 0 B/op.
+ * {@link #dispatchOverriddenLookup()} clicks a menu of which the class overrides {@link MenuHolder#getButton(int)}, so that the button is looked up
+ * through {@link MenuHolder#getButtonOptionally(int)}, as all menus did before. {@link #dispatchEmptySlot()} clicks a slot without a button.
+ * <p>
+ * No server is needed: the inventories are proxies that only know their size, and the GuiListener is not registered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClickDispatchBenchmark {
+
+    private static final int SIZE = 54;
+    private static final int CLICKED_SLOT = 22, EMPTY_SLOT = 23;
+
+    private final CountingButton button = new CountingButton();
+    private MenuHolder<Plugin> menu, overridingMenu;
+    private InventoryClickEvent click, emptySlotClick, overridingMenuClick;
+
+    @Setup
+    public void setup() {
+        Plugin plugin = proxy(Plugin.class);
+
+        menu = new MenuHolder<>(GuiListener.getInstance(), plugin, fakeInventory(SIZE));
+        menu.setButton(CLICKED_SLOT, button);
+        overridingMenu = new OverridingMenu(plugin, fakeInventory(SIZE));
+        overridingMenu.setButton(CLICKED_SLOT, button);
+
+        click = click(menu.getInventory(), CLICKED_SLOT);
+        emptySlotClick = click(menu.getInventory(), EMPTY_SLOT);
+        overridingMenuClick = click(overridingMenu.getInventory(), CLICKED_SLOT);
+    }
+
+    @Benchmark
+    public int dispatch() {
+        menu.onClick(click);
+        return button.clicks;
+    }
+
+    @Benchmark
+    public int dispatchOverriddenLookup() {
+        overridingMenu.onClick(overridingMenuClick);
+        return button.clicks;
+    }
+
+    @Benchmark
+    public int dispatchEmptySlot() {
+        menu.onClick(emptySlotClick);
+        return button.clicks;
+    }
+
+    private static InventoryClickEvent click(Inventory topInventory, int rawSlot) {
+        return new InventoryClickEvent(new FakeView(topInventory, fakeInventory(36)), InventoryType.SlotType.CONTAINER, rawSlot, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+    }
+
+    //an inventory that only knows its size. items that are put into it are dropped.
+    private static Inventory fakeInventory(int size) {
+        return (Inventory) Proxy.newProxyInstance(Inventory.class.getClassLoader(), new Class<?>[] {Inventory.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getSize": return size;
+                case "getType": return InventoryType.CHEST;
+                case "getViewers": return Collections.emptyList();
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: return null;
+            }
+        });
+    }
+
+    public static class CountingButton implements MenuButton<MenuHolder<?>> {
+        private int clicks;
+
+        @Override
+        public void onClick(MenuHolder<?> holder, InventoryClickEvent event) {
+            clicks += 1;
+        }
+    }
+
+    public static class OverridingMenu extends MenuHolder<Plugin> {
+        public OverridingMenu(Plugin plugin, Inventory inventory) {
+            super(GuiListener.getInstance(), plugin, inventory);
+        }
+
+        @Override
+        public MenuButton<?> getButton(int slot) {
+            return super.getButton(slot);
+        }
+    }
+
+    public static class FakeView extends InventoryView {
+        private final Inventory top, bottom;
+
+        public FakeView(Inventory top, Inventory bottom) {
+            this.top = top;
+            this.bottom = bottom;
+        }
+
+        @Override
+        public Inventory getTopInventory() {
+            return top;
+        }
+
+        @Override
+        public Inventory getBottomInventory() {
+            return bottom;
+        }
+
+        @Override
+        public HumanEntity getPlayer() {
+            return null;
+        }
+
+        @Override
+        public InventoryType getType() {
+            return InventoryType.CHEST;
+        }
+
+        @Override
+        public String getTitle() {
+            return "";
+        }
+
+        //abstract in later versions of the api.
+        public String getOriginalTitle() {
+            return "";
+        }
+
+        public void setTitle(String title) {
+        }
+    }
+
+}
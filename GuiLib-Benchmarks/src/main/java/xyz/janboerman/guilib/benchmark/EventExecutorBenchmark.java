@@ -0,0 +1,98 @@
+package xyz.janboerman.guilib.benchmark;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event overhead of the executor through which Bukkit calls an event handler.
+ * <p>
+ * {@link #reflectiveExecutor()} uses the executor that {@code PluginManager.registerEvents} creates for an {@link EventHandler} method on Spigot:
+ * it checks the event class and invokes the method reflectively. {@link #handWrittenExecutor()} uses an executor like the ones GuiListener
+ * registers through {@code PluginManager.registerEvent}: a non-capturing lambda that checks the event type and calls the handler directly.
+ * {@link #directCall()} is the lower bound.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventExecutorBenchmark {
+
+    private static final EventExecutor HAND_WRITTEN_EXECUTOR = (listener, event) -> {
+        if (event instanceof BenchmarkEvent) ((BenchmarkListener) listener).onEvent((BenchmarkEvent) event);
+    };
+
+    private final BenchmarkListener listener = new BenchmarkListener();
+    private final BenchmarkEvent event = new BenchmarkEvent();
+    private EventExecutor reflectiveExecutor;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        reflectiveExecutor = reflectiveExecutor(BenchmarkListener.class.getMethod("onEvent", BenchmarkEvent.class), BenchmarkEvent.class);
+    }
+
+    //the executor that Spigot's JavaPluginLoader creates for @EventHandler methods.
+    private static EventExecutor reflectiveExecutor(Method method, Class<? extends Event> eventClass) {
+        return (listener, event) -> {
+            try {
+                if (!eventClass.isAssignableFrom(event.getClass())) return;
+                method.invoke(listener, event);
+            } catch (InvocationTargetException e) {
+                throw new EventException(e.getCause());
+            } catch (Throwable t) {
+                throw new EventException(t);
+            }
+        };
+    }
+
+    @Benchmark
+    public int reflectiveExecutor() throws EventException {
+        reflectiveExecutor.execute(listener, event);
+        return listener.handled;
+    }
+
+    @Benchmark
+    public int handWrittenExecutor() throws EventException {
+        HAND_WRITTEN_EXECUTOR.execute(listener, event);
+        return listener.handled;
+    }
+
+    @Benchmark
+    public int directCall() {
+        listener.onEvent(event);
+        return listener.handled;
+    }
+
+    public static class BenchmarkListener implements Listener {
+        private int handled;
+
+        @EventHandler
+        public void onEvent(BenchmarkEvent event) {
+            handled += 1;
+        }
+    }
+
+    public static class BenchmarkEvent extends Event {
+        private static final HandlerList HANDLERS = new HandlerList();
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLERS;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLERS;
+        }
+    }
+
+}
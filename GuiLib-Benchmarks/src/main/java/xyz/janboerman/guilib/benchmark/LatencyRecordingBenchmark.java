@@ -0,0 +1,60 @@
+package xyz.janboerman.guilib.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import xyz.janboerman.guilib.api.util.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of recording handler latencies, as done by the event handlers of GuiListener.
+ * <p>
+ * {@link #handlerWithoutRecording()} is a handler of which recording is disabled: the only overhead is a read of a volatile field.
+ * {@link #handlerWithRecording()} times the handler with {@link System#nanoTime()} and records the latency in a {@link LatencyHistogram}.
+ * {@link #recordContended()} records into one histogram from four threads, like region threads on Folia do.
+ * The handler itself consumes a few CPU cycles, so that the baseline is not optimized away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyRecordingBenchmark {
+
+    private volatile boolean recordingDisabled = false;
+    private volatile boolean recordingEnabled = true;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Benchmark
+    public void handlerBaseline() {
+        handler();
+    }
+
+    @Benchmark
+    public void handlerWithoutRecording() {
+        boolean recordLatency = recordingDisabled;
+        long startNanos = recordLatency ? System.nanoTime() : 0L;
+        handler();
+        if (recordLatency) histogram.record(System.nanoTime() - startNanos);
+    }
+
+    @Benchmark
+    public void handlerWithRecording() {
+        boolean recordLatency = recordingEnabled;
+        long startNanos = recordLatency ? System.nanoTime() : 0L;
+        handler();
+        if (recordLatency) histogram.record(System.nanoTime() - startNanos);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.record(250L);
+    }
+
+    private static void handler() {
+        Blackhole.consumeCPU(10);
+    }
+
+}
@@ -11,7 +11,8 @@ import xyz.janboerman.guilib.api.GuiListener;
  * <pre><code>depend: ["GuiLib"]</code></pre>
  * <p>
  * When used as a compile time dependency, be sure to shade the classes into your jar and relocate them.
- * Then you need to register the {@link GuiListener} in your onEnable.
+ * Then you need to register the {@link GuiListener} in your onEnable using {@link GuiListener#register(org.bukkit.plugin.Plugin)},
+ * which lets it coordinate with the GuiLib plugin and other plugins that shade GuiLib.
  *
  * @see xyz.janboerman.guilib.api.GuiInventoryHolder
  */
@@ -24,7 +25,8 @@ public class GuiLibrary extends JavaPlugin {
      */
     @Override
     public void onEnable() {
-        getServer().getPluginManager().registerEvents(guiListener = GuiListener.getInstance(), this);
+        guiListener = GuiListener.getInstance();
+        guiListener.register(this);
     }
 
     /**